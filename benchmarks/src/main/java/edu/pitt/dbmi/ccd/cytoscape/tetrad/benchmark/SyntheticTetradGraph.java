@@ -0,0 +1,226 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad.benchmark;
+
+import edu.cmu.tetrad.graph.EdgeTypeProbability;
+import edu.cmu.tetrad.graph.Endpoint;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A random Tetrad graph for the benchmarks, written the way Tetrad writes
+ * SampleTetradGraphOutput.json: "nodes", "edgesSet" with a full copy of both
+ * nodes in every edge, "edgeLists" with every edge once per node, "namesHash"
+ * and the triple lists. The same seed always gives the same graph.
+ *
+ */
+public class SyntheticTetradGraph {
+
+    // The edge types Tetrad search results are made of, as endpoint1/endpoint2
+    private static final Endpoint[][] EDGE_ENDPOINTS = {
+        {Endpoint.TAIL, Endpoint.ARROW},
+        {Endpoint.CIRCLE, Endpoint.ARROW},
+        {Endpoint.CIRCLE, Endpoint.CIRCLE},
+        {Endpoint.ARROW, Endpoint.ARROW},
+        {Endpoint.TAIL, Endpoint.TAIL}
+    };
+
+    // The EdgeType matching each entry of EDGE_ENDPOINTS
+    private static final EdgeTypeProbability.EdgeType[] EDGE_ENDPOINT_TYPES = {
+        EdgeTypeProbability.EdgeType.ta,
+        EdgeTypeProbability.EdgeType.ca,
+        EdgeTypeProbability.EdgeType.cc,
+        EdgeTypeProbability.EdgeType.aa,
+        EdgeTypeProbability.EdgeType.tt
+    };
+
+    private static final EdgeTypeProbability.EdgeType[] EDGE_TYPES = EdgeTypeProbability.EdgeType.values();
+
+    private final String[] nodeNames;
+    private final int[] centerXs;
+    private final int[] centerYs;
+
+    private final int[] sources;
+    private final int[] targets;
+    private final int[] edgeKinds;
+
+    // EDGE_TYPES.length probabilities per edge, null without edgeTypeProbabilities
+    private final double[] probabilities;
+
+    /**
+     * @param nodeCount number of nodes
+     * @param edgesPerNode average number of edges per node
+     * @param withProbabilities true to give every edge edgeTypeProbabilities,
+     * like a bootstrap run does
+     * @param seed random seed
+     */
+    public SyntheticTetradGraph(int nodeCount, double edgesPerNode, boolean withProbabilities, long seed) {
+        Random random = new Random(seed);
+
+        nodeNames = new String[nodeCount];
+        centerXs = new int[nodeCount];
+        centerYs = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodeNames[i] = "X" + (i + 1);
+            centerXs[i] = random.nextInt(4000);
+            centerYs[i] = random.nextInt(4000);
+        }
+
+        int edgeCount = (int) Math.min((long) (nodeCount * edgesPerNode), (long) nodeCount * (nodeCount - 1) / 2);
+        sources = new int[edgeCount];
+        targets = new int[edgeCount];
+        edgeKinds = new int[edgeCount];
+        probabilities = withProbabilities ? new double[edgeCount * EDGE_TYPES.length] : null;
+
+        // At most one edge per pair of nodes, as in a Tetrad graph
+        Set<Long> pairs = new HashSet<>(edgeCount * 2);
+        for (int i = 0; i < edgeCount; i++) {
+            int source;
+            int target;
+            do {
+                source = random.nextInt(nodeCount);
+                target = random.nextInt(nodeCount);
+            } while (source == target || !pairs.add((long) Math.min(source, target) * nodeCount + Math.max(source, target)));
+
+            sources[i] = source;
+            targets[i] = target;
+            edgeKinds[i] = random.nextInt(EDGE_ENDPOINTS.length);
+
+            if (withProbabilities) {
+                fillProbabilities(random, i);
+            }
+        }
+    }
+
+    /**
+     * Random probabilities summing to 1, the edge's own type being the most
+     * likely non-nil one.
+     */
+    private void fillProbabilities(Random random, int edge) {
+        int offset = edge * EDGE_TYPES.length;
+        double total = 0.0;
+        for (int i = 0; i < EDGE_TYPES.length; i++) {
+            probabilities[offset + i] = random.nextInt(4) == 0 ? random.nextDouble() * 0.2 : 0.0;
+            total += probabilities[offset + i];
+        }
+
+        int edgeType = EDGE_ENDPOINT_TYPES[edgeKinds[edge]].ordinal();
+        probabilities[offset + edgeType] = 0.2 + random.nextDouble() * 0.8;
+        total += probabilities[offset + edgeType];
+
+        for (int i = 0; i < EDGE_TYPES.length; i++) {
+            probabilities[offset + i] /= total;
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeNames.length;
+    }
+
+    public int getEdgeCount() {
+        return sources.length;
+    }
+
+    /**
+     * Writes the graph as a Tetrad json file.
+     *
+     * @param file the file to write
+     * @throws IOException
+     */
+    public void writeJson(Path file) throws IOException {
+        // Edges per node for "edgeLists"
+        List<List<Integer>> nodeEdges = new ArrayList<>(nodeNames.length);
+        for (int i = 0; i < nodeNames.length; i++) {
+            nodeEdges.add(new ArrayList<>());
+        }
+        for (int i = 0; i < sources.length; i++) {
+            nodeEdges.get(sources[i]).add(i);
+            nodeEdges.get(targets[i]).add(i);
+        }
+
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+            out.write("{\"nodes\":[");
+            for (int i = 0; i < nodeNames.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                writeNode(out, i);
+            }
+
+            out.write("],\"edgesSet\":[");
+            for (int i = 0; i < sources.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                writeEdge(out, i);
+            }
+
+            out.write("],\"edgeLists\":{");
+            for (int i = 0; i < nodeNames.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write('"' + nodeNames[i] + "\":[");
+                List<Integer> edges = nodeEdges.get(i);
+                for (int j = 0; j < edges.size(); j++) {
+                    if (j > 0) {
+                        out.write(',');
+                    }
+                    writeEdge(out, edges.get(j));
+                }
+                out.write(']');
+            }
+
+            out.write("},\"ambiguousTriples\":[],\"underLineTriples\":[],\"dottedUnderLineTriples\":[],"
+                    + "\"stuffRemovedSinceLastTripleAccess\":false,\"highlightedEdges\":[],\"namesHash\":{");
+            for (int i = 0; i < nodeNames.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write('"' + nodeNames[i] + "\":");
+                writeNode(out, i);
+            }
+            out.write("},\"pattern\":false,\"pag\":false}");
+        }
+    }
+
+    private void writeNode(Writer out, int node) throws IOException {
+        out.write("{\"nodeType\":{\"ordinal\":0},\"centerX\":" + centerXs[node]
+                + ",\"centerY\":" + centerYs[node]
+                + ",\"name\":\"" + nodeNames[node] + "\"}");
+    }
+
+    private void writeEdge(Writer out, int edge) throws IOException {
+        Endpoint[] endpoints = EDGE_ENDPOINTS[edgeKinds[edge]];
+
+        out.write("{\"node1\":");
+        writeNode(out, sources[edge]);
+        out.write(",\"node2\":");
+        writeNode(out, targets[edge]);
+        out.write(",\"endpoint1\":{\"ordinal\":" + endpoints[0].ordinal()
+                + "},\"endpoint2\":{\"ordinal\":" + endpoints[1].ordinal()
+                + "},\"bold\":false,\"properties\":[]");
+
+        if (probabilities != null) {
+            out.write(",\"edgeTypeProbabilities\":[");
+            int offset = edge * EDGE_TYPES.length;
+            for (int i = 0; i < EDGE_TYPES.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write("{\"edgeType\":\"" + EDGE_TYPES[i].name() + "\",\"probability\":" + probabilities[offset + i] + "}");
+            }
+            out.write(']');
+        }
+
+        out.write('}');
+    }
+
+}
@@ -0,0 +1,197 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad.benchmark;
+
+import edu.pitt.dbmi.ccd.cytoscape.tetrad.CreateNetworkTask;
+import edu.pitt.dbmi.ccd.cytoscape.tetrad.DeferredViewListener;
+import edu.pitt.dbmi.ccd.cytoscape.tetrad.EdgeRowValues;
+import edu.pitt.dbmi.ccd.cytoscape.tetrad.ImportProgress;
+import edu.pitt.dbmi.ccd.cytoscape.tetrad.TetradGraphData;
+import edu.pitt.dbmi.ccd.cytoscape.tetrad.TetradNetworkBuilder;
+import edu.pitt.dbmi.ccd.cytoscape.tetrad.TetradNetworkImporter;
+import edu.pitt.dbmi.ccd.cytoscape.tetrad.TetradVisualStyle;
+import static org.mockito.Mockito.mock;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.cytoscape.event.CyEventHelper;
+import org.cytoscape.event.DummyCyEventHelper;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNetworkFactory;
+import org.cytoscape.model.CyNetworkManager;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.NetworkTestSupport;
+import org.cytoscape.view.model.CyNetworkViewFactory;
+import org.cytoscape.view.model.CyNetworkViewManager;
+import org.cytoscape.work.TaskMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the Tetrad import pipeline on synthetic graphs.
+ *
+ * Networks are created with Cytoscape's own in-memory model implementation
+ * (NetworkTestSupport), everything that needs a running Cytoscape (network
+ * manager, views, styles) is mocked. The view threshold is 0, so
+ * CreateNetworkTask.run measures reading and building the network only.
+ * Run with -prof gc for the allocation rate per operation.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class TetradImportBenchmark {
+
+    /**
+     * The synthetic graph, generated once per parameter combination.
+     */
+    @State(Scope.Benchmark)
+    public static class GraphState {
+
+        @Param({"1000", "10000", "100000"})
+        public int nodeCount;
+
+        @Param({"1.0", "3.0"})
+        public double edgesPerNode;
+
+        @Param({"true", "false"})
+        public boolean edgeTypeProbabilities;
+
+        SyntheticTetradGraph graph;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            graph = new SyntheticTetradGraph(nodeCount, edgesPerNode, edgeTypeProbabilities, 42L);
+        }
+
+    }
+
+    /**
+     * The graph written as a Tetrad json file.
+     */
+    @State(Scope.Benchmark)
+    public static class JsonFileState {
+
+        Path jsonFile;
+
+        @Setup(Level.Trial)
+        public void setUp(GraphState graphState) throws IOException {
+            jsonFile = Files.createTempFile("tetrad-benchmark-", ".json");
+            graphState.graph.writeJson(jsonFile);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(jsonFile);
+        }
+
+    }
+
+    /**
+     * The parsed graph, ready to become a network.
+     */
+    @State(Scope.Benchmark)
+    public static class GraphDataState {
+
+        TetradGraphData tetradGraph;
+
+        @Setup(Level.Trial)
+        public void setUp(JsonFileState jsonFileState) throws IOException {
+            tetradGraph = newTask(null, null).extractTetradGraphFromFile(jsonFileState.jsonFile.toString());
+        }
+
+    }
+
+    /**
+     * In-memory Cytoscape services.
+     */
+    @State(Scope.Benchmark)
+    public static class CytoscapeState {
+
+        CyNetworkFactory cyNetworkFactory;
+        CyEventHelper cyEventHelper;
+        TetradNetworkBuilder tetradNetworkBuilder;
+        TetradNetworkImporter tetradNetworkImporter;
+        TaskMonitor taskMonitor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            cyNetworkFactory = new NetworkTestSupport().getNetworkFactory();
+            cyEventHelper = new DummyCyEventHelper();
+            tetradNetworkBuilder = new TetradNetworkBuilder(cyNetworkFactory, cyEventHelper);
+
+            // Nothing is registered or kept, every network can be collected after its operation
+            tetradNetworkImporter = new TetradNetworkImporter(mock(CyNetworkManager.class),
+                    mock(CyNetworkViewFactory.class),
+                    mock(CyNetworkViewManager.class),
+                    tetradNetworkBuilder,
+                    mock(TetradVisualStyle.class),
+                    mock(DeferredViewListener.class),
+                    cyEventHelper);
+            taskMonitor = mock(TaskMonitor.class);
+        }
+
+    }
+
+    /**
+     * A network built from the parsed graph and a row for each of its
+     * edges.
+     */
+    @State(Scope.Benchmark)
+    public static class EdgeRowsState {
+
+        CyRow[] edgeRows;
+
+        @Setup(Level.Trial)
+        public void setUp(GraphDataState graphDataState, CytoscapeState cytoscapeState) {
+            CyNetwork myNet = cytoscapeState.tetradNetworkBuilder.buildNetwork(graphDataState.tetradGraph);
+
+            // Every edge index gets a row, EdgeRowValues only skips the missing ones
+            List<CyEdge> cyEdges = myNet.getEdgeList();
+            edgeRows = new CyRow[cyEdges.size()];
+            for (int i = 0; i < edgeRows.length; i++) {
+                edgeRows[i] = myNet.getRow(cyEdges.get(i));
+            }
+        }
+
+    }
+
+    @Benchmark
+    public TetradGraphData extractTetradGraphFromFile(JsonFileState jsonFileState) throws IOException {
+        return newTask(null, null).extractTetradGraphFromFile(jsonFileState.jsonFile.toString());
+    }
+
+    @Benchmark
+    public EdgeRowValues edgeRowValues(GraphDataState graphDataState, EdgeRowsState edgeRowsState) {
+        return new EdgeRowValues(graphDataState.tetradGraph, edgeRowsState.edgeRows, ImportProgress.none());
+    }
+
+    @Benchmark
+    public CyNetwork buildNetwork(GraphDataState graphDataState, CytoscapeState cytoscapeState) {
+        return cytoscapeState.tetradNetworkBuilder.buildNetwork(graphDataState.tetradGraph);
+    }
+
+    @Benchmark
+    public void createNetworkTaskRun(JsonFileState jsonFileState, CytoscapeState cytoscapeState) throws Exception {
+        newTask(cytoscapeState.tetradNetworkImporter, jsonFileState.jsonFile.toString()).run(cytoscapeState.taskMonitor);
+    }
+
+    private static CreateNetworkTask newTask(TetradNetworkImporter tetradNetworkImporter, String fileName) {
+        return new CreateNetworkTask(tetradNetworkImporter, 0, fileName, null, null);
+    }
+
+}
@@ -0,0 +1,51 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.UUID;
+
+/**
+ * Hands out the uuid strings of CCD annotations without a SecureRandom
+ * call per annotation.
+ *
+ * One random UUID is drawn per instance and the sequence number replaces
+ * its last 12 hex digits, so the ids of one instance never collide and ids
+ * of different instances practically never do. The id of a sequence number
+ * is always the same, whichever thread asks for it.
+ *
+ */
+public class AnnotationIds {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // The random UUID up to its last 12 hex digits, "xxxxxxxx-xxxx-xxxx-xxxx-"
+    private final String prefix;
+
+    private long nextSequence = 0;
+
+    public AnnotationIds() {
+        String uuid = UUID.randomUUID().toString();
+        this.prefix = uuid.substring(0, uuid.length() - 12);
+    }
+
+    /**
+     * @param sequence a sequence number, only the lower 48 bits are used
+     * @return the id of the sequence number
+     */
+    public String get(long sequence) {
+        char[] id = new char[prefix.length() + 12];
+        prefix.getChars(0, prefix.length(), id, 0);
+        for (int i = id.length - 1; i >= prefix.length(); i--) {
+            id[i] = HEX_DIGITS[(int) (sequence & 0x0F)];
+            sequence >>>= 4;
+        }
+
+        return new String(id);
+    }
+
+    /**
+     * @return the id of the next sequence number, not thread safe
+     */
+    public String next() {
+        return get(nextSequence++);
+    }
+
+}
@@ -0,0 +1,59 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.TaskMonitor;
+
+/**
+ * Lays out a Tetrad network view and applies the Tetrad style to it.
+ *
+ * Kept apart from the network creation so that it can be cancelled on its
+ * own and so that it can run later for networks whose view was deferred.
+ *
+ */
+public class ApplyTetradStyleTask extends AbstractTask {
+
+    private final CyNetworkView networkView;
+    private final TetradNodeLayout nodeLayout;
+    private final TetradVisualStyle tetradVisualStyle;
+
+    /**
+     * @param networkView the view to style
+     * @param nodeLayout initial node locations, null if already laid out
+     * @param tetradVisualStyle
+     */
+    public ApplyTetradStyleTask(final CyNetworkView networkView,
+            final TetradNodeLayout nodeLayout,
+            final TetradVisualStyle tetradVisualStyle) {
+
+        this.networkView = networkView;
+        this.nodeLayout = nodeLayout;
+        this.tetradVisualStyle = tetradVisualStyle;
+    }
+
+    @Override
+    public void run(TaskMonitor monitor) throws Exception {
+        monitor.setTitle("Applying Tetrad style");
+        long startTime = System.nanoTime();
+
+        if (nodeLayout != null) {
+            monitor.setStatusMessage("Placing nodes...");
+            nodeLayout.apply(networkView);
+        }
+
+        if (cancelled) {
+            return;
+        }
+
+        // use the tetrad style, loaded once and shared by all imports
+        monitor.setStatusMessage("Applying style...");
+        tetradVisualStyle.apply(networkView);
+
+        networkView.fitContent();
+        networkView.updateView();
+        monitor.setProgress(1.0);
+        monitor.showMessage(TaskMonitor.Level.INFO, ImportStage.STYLE.getDescription() + ": "
+                + (System.nanoTime() - startTime) / 1000000L + " ms");
+    }
+
+}
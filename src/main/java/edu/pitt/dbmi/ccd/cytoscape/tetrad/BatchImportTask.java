@@ -0,0 +1,142 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.ContainsTunables;
+import org.cytoscape.work.TaskMonitor;
+import org.cytoscape.work.Tunable;
+
+/**
+ * Imports many Tetrad graph files at once.
+ *
+ * The files are read and converted on a bounded pool of worker threads,
+ * while the networks are added to Cytoscape one at a time, in the order the
+ * files were given. Only a few parsed graphs are held in memory at any time.
+ *
+ */
+public class BatchImportTask extends AbstractTask {
+
+    private final TetradNetworkImporter tetradNetworkImporter;
+
+    // Parsed graphs of earlier imports, may be null
+    private final TetradGraphCache graphCache;
+
+    private final List<File> inputFiles;
+    private final int viewThreshold;
+
+    // Views of the imported networks and the batch totals, filled in file order
+    private final List<CyNetworkView> views = new ArrayList<>();
+    private long startTime;
+    private long bytesRead = 0;
+    private int imported = 0;
+    private long droppedEdges = 0;
+
+    @ContainsTunables
+    public ImportOptions options = new ImportOptions();
+
+    @ContainsTunables
+    public SubgraphOptions subgraph = new SubgraphOptions();
+
+    @Tunable(description = "Combine the files into one consensus network (e.g. bootstrap samples)", gravity = 10.0)
+    public boolean consensus = false;
+
+    public BatchImportTask(final TetradNetworkImporter tetradNetworkImporter,
+            int viewThreshold,
+            List<File> inputFiles,
+            TetradGraphCache graphCache) {
+
+        this.tetradNetworkImporter = tetradNetworkImporter;
+        this.graphCache = graphCache;
+        this.viewThreshold = viewThreshold;
+        this.inputFiles = inputFiles;
+    }
+
+    @Override
+    public void run(TaskMonitor monitor) throws Exception {
+        if (consensus) {
+            // One network with the edge type frequencies over all the files
+            insertTasksAfterCurrentTask(new ConsensusImportTask(tetradNetworkImporter, viewThreshold, inputFiles, graphCache, options, subgraph));
+            return;
+        }
+
+        monitor.setTitle("Importing " + inputFiles.size() + " Tetrad graphs");
+        monitor.setProgress(0.0);
+
+        // The heap peak is measured over the whole batch
+        ImportMetrics.resetPeakHeap();
+
+        final EdgeProbabilityFilter edgeFilter = options.createEdgeFilter();
+        final TetradGraphCache fileCache = options.useGraphCache ? graphCache : null;
+
+        // The progress of each file, handed from the worker to the ordered stage along with its graph
+        final ImportProgress[] progresses = new ImportProgress[inputFiles.size()];
+
+        startTime = System.nanoTime();
+        List<String> failedFiles;
+        try {
+            failedFiles = new OrderedFileReader<TetradGraphData>(inputFiles, () -> cancelled).readAll((index, file) -> {
+                ImportProgress fileProgress = new ImportProgress(null, () -> cancelled);
+                progresses[index] = fileProgress;
+                fileProgress.getMetrics().start();
+                fileProgress.getMetrics().setBatchPeakHeap();
+                fileProgress.getMetrics().setInput(file.toPath(), file.length());
+                fileProgress.getMetrics().setOptions(options, subgraph);
+                fileProgress.startStage(ImportStage.READ);
+                TetradGraphData tetradGraph = (fileCache != null)
+                        ? fileCache.read(file.toPath(), edgeFilter, fileProgress)
+                        : TetradGraphFiles.read(file.toPath(), edgeFilter, fileProgress);
+
+                // The part to import is picked on the worker as well
+                return subgraph.extract(tetradGraph);
+            }, (index, file, tetradGraph) -> {
+                ImportProgress fileProgress = progresses[index];
+                progresses[index] = null;
+                importFile(index, file, tetradGraph, fileProgress, monitor);
+            }, monitor);
+        } catch (CancellationException e) {
+            // The network of the file being added has already been dropped, the ones before it are complete
+            return;
+        }
+
+        if (droppedEdges > 0) {
+            monitor.showMessage(TaskMonitor.Level.INFO, droppedEdges + " edges were left out by the probability thresholds.");
+        }
+
+        if (!failedFiles.isEmpty()) {
+            monitor.showMessage(TaskMonitor.Level.WARN, failedFiles.size() + " of " + inputFiles.size() + " files could not be imported: " + failedFiles);
+        }
+
+        // use the tetrad style in their own tasks so they can be cancelled
+        for (CyNetworkView myView : views) {
+            insertTasksAfterCurrentTask(tetradNetworkImporter.createStyleTask(myView));
+        }
+    }
+
+    private void importFile(int index, File file, TetradGraphData tetradGraph, ImportProgress fileProgress, TaskMonitor monitor) {
+        // The monitor shows the progress per file, the stages only need to stop on cancel
+        CyNetworkView myView = tetradNetworkImporter.importGraph(tetradGraph, getNetworkName(file), options, viewThreshold, fileProgress);
+        if (myView != null) {
+            views.add(myView);
+        }
+
+        fileProgress.getMetrics().log(file.toPath(), monitor, options.writeMetricsFile);
+
+        imported++;
+        bytesRead += file.length();
+        droppedEdges += tetradGraph.getDroppedEdgeCount();
+
+        double seconds = Math.max((System.nanoTime() - startTime) / 1e9, 1e-3);
+        monitor.setProgress((double) (index + 1) / inputFiles.size());
+        monitor.setStatusMessage(String.format("Imported %d of %d files (%.1f files/s, %.1f MB/s)",
+                index + 1, inputFiles.size(), imported / seconds, bytesRead / seconds / (1024 * 1024)));
+    }
+
+    private String getNetworkName(File file) {
+        return TetradNetworkBuilder.NETWORK_NAME + " - " + file.getName();
+    }
+
+}
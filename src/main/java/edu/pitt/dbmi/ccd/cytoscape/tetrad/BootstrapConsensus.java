@@ -0,0 +1,176 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import edu.cmu.tetrad.graph.EdgeTypeProbability;
+
+/**
+ * Adds up many Tetrad graphs of the same variables, e.g. from bootstrap
+ * samples, into one consensus graph with an edge type frequency per edge.
+ *
+ * Only the node dictionary and the edge type counts per node pair are kept,
+ * so memory depends on the number of distinct nodes and pairs, not on the
+ * number of graphs. The frequencies become the edge type probabilities of
+ * the consensus edges, like the edgeTypeProbabilities of a Tetrad bootstrap
+ * search: nil is the share of graphs without an edge between the pair, and
+ * each edge is oriented like its most frequent edge type.
+ *
+ */
+public class BootstrapConsensus {
+
+    private static final int NIL = EdgeTypeProbability.EdgeType.nil.ordinal();
+
+    // Endpoint codes of node1 and node2 per edge type, from the type names ("ta" is tail/arrow)
+    private static final int[] EDGE_TYPE_ENDPOINT1 = new int[EdgeStore.EDGE_TYPE_COUNT];
+    private static final int[] EDGE_TYPE_ENDPOINT2 = new int[EdgeStore.EDGE_TYPE_COUNT];
+
+    static {
+        for (int i = 0; i < EdgeStore.EDGE_TYPE_COUNT; i++) {
+            String name = EdgeStore.EDGE_TYPES[i].name();
+            EDGE_TYPE_ENDPOINT1[i] = (i == NIL) ? EdgeStore.UNKNOWN_ENDPOINT : toEndpoint(name.charAt(0));
+            EDGE_TYPE_ENDPOINT2[i] = (i == NIL) ? EdgeStore.UNKNOWN_ENDPOINT : toEndpoint(name.charAt(1));
+        }
+    }
+
+    // Holds the nodes of all the graphs, the edges are only added by finish
+    private final TetradGraphData consensus = new TetradGraphData();
+
+    private final EdgeTypeCounter counter = new EdgeTypeCounter();
+
+    private int graphCount = 0;
+
+    // Edges whose endpoints make none of the Tetrad edge types
+    private long unknownEdgeCount = 0;
+
+    private boolean finished = false;
+
+    public BootstrapConsensus() {
+    }
+
+    /**
+     * Counts the edges of one more graph.
+     *
+     * @param tetradGraph a parsed Tetrad graph
+     */
+    public void add(TetradGraphData tetradGraph) {
+        if (finished) {
+            throw new IllegalStateException("The consensus graph was already built.");
+        }
+
+        // Node indexes of the graph in the consensus, the first location seen is kept
+        int[] nodes = new int[tetradGraph.getNodeCount()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = consensus.addNode(tetradGraph.getNodeName(i), tetradGraph.getCenterX(i), tetradGraph.getCenterY(i));
+        }
+
+        EdgeStore edges = tetradGraph.getEdges();
+        for (int i = 0; i < edges.size(); i++) {
+            int node1 = nodes[edges.getSource(i)];
+            int node2 = nodes[edges.getTarget(i)];
+            int endpoint1 = edges.getEndpoint1(i);
+            int endpoint2 = edges.getEndpoint2(i);
+
+            // Count every pair in the same direction, flipping the endpoints with it
+            if (node1 > node2) {
+                int node = node1;
+                node1 = node2;
+                node2 = node;
+                int endpoint = endpoint1;
+                endpoint1 = endpoint2;
+                endpoint2 = endpoint;
+            }
+
+            int edgeType = toEdgeType(endpoint1, endpoint2);
+            if (edgeType < 0) {
+                unknownEdgeCount++;
+                continue;
+            }
+            counter.add(node1, node2, edgeType);
+        }
+
+        graphCount++;
+    }
+
+    public int getGraphCount() {
+        return graphCount;
+    }
+
+    public long getUnknownEdgeCount() {
+        return unknownEdgeCount;
+    }
+
+    /**
+     * Builds the consensus graph, once all the graphs were added.
+     *
+     * @param edgeFilter drops edges with too low frequencies
+     * @return one edge per node pair seen in any graph, with the edge type
+     * frequencies as probabilities
+     */
+    public TetradGraphData finish(EdgeProbabilityFilter edgeFilter) {
+        if (finished) {
+            throw new IllegalStateException("The consensus graph was already built.");
+        }
+        finished = true;
+
+        EdgeStore edges = consensus.getEdges();
+        double[] edgeProbabilities = new double[EdgeStore.EDGE_TYPE_COUNT];
+        for (int pair = 0; pair < counter.size(); pair++) {
+            int edgeCount = 0;
+            int maxEdgeType = -1;
+            for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                int count = counter.getCount(pair, edgeType);
+                edgeCount += count;
+                if (count > 0 && (maxEdgeType < 0 || count > counter.getCount(pair, maxEdgeType))) {
+                    maxEdgeType = edgeType;
+                }
+            }
+
+            // Like Tetrad, every edge type gets a probability, 0.0 if it never occurred
+            for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                int count = (edgeType == NIL) ? graphCount - edgeCount : counter.getCount(pair, edgeType);
+                edgeProbabilities[edgeType] = (double) Math.max(count, 0) / graphCount;
+            }
+
+            if (!edgeFilter.accept(edgeProbabilities)) {
+                consensus.addDroppedEdge();
+                continue;
+            }
+
+            int edge = edges.addEdge(counter.getNode1(pair), counter.getNode2(pair),
+                    EDGE_TYPE_ENDPOINT1[maxEdgeType], EDGE_TYPE_ENDPOINT2[maxEdgeType]);
+            for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                if (!Double.isNaN(edgeProbabilities[edgeType])) {
+                    edges.setProbability(edge, edgeType, edgeProbabilities[edgeType]);
+                }
+            }
+        }
+        edges.trimToSize();
+
+        return consensus;
+    }
+
+    /**
+     * @return the EdgeTypeProbability.EdgeType ordinal of the endpoints or -1
+     */
+    private static int toEdgeType(int endpoint1, int endpoint2) {
+        for (int i = 0; i < EdgeStore.EDGE_TYPE_COUNT; i++) {
+            if (i != NIL && EDGE_TYPE_ENDPOINT1[i] == endpoint1 && EDGE_TYPE_ENDPOINT2[i] == endpoint2) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int toEndpoint(char endpoint) {
+        switch (endpoint) {
+            case 't':
+                return EdgeStore.TAIL;
+            case 'a':
+                return EdgeStore.ARROW;
+            case 'c':
+                return EdgeStore.CIRCLE;
+            default:
+                return EdgeStore.UNKNOWN_ENDPOINT;
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.TaskMonitor;
+
+/**
+ * Imports many Tetrad graphs, e.g. one per bootstrap sample, as a single
+ * consensus network whose edges carry the edge type frequencies.
+ *
+ * The files are read on a bounded pool of worker threads and added to the
+ * BootstrapConsensus in the order they were given, so the result doesn't
+ * depend on the thread timing and only a few parsed graphs are held in
+ * memory at any time.
+ *
+ */
+public class ConsensusImportTask extends AbstractTask {
+
+    private final TetradNetworkImporter tetradNetworkImporter;
+
+    private final List<File> inputFiles;
+    private final int viewThreshold;
+
+    // Parsed graphs of earlier imports, may be null
+    private final TetradGraphCache graphCache;
+
+    private final ImportOptions options;
+    private final SubgraphOptions subgraph;
+
+    // Bytes of the files counted so far
+    private long bytesRead = 0;
+
+    public ConsensusImportTask(final TetradNetworkImporter tetradNetworkImporter,
+            int viewThreshold,
+            List<File> inputFiles,
+            TetradGraphCache graphCache,
+            ImportOptions options,
+            SubgraphOptions subgraph) {
+
+        this.tetradNetworkImporter = tetradNetworkImporter;
+        this.viewThreshold = viewThreshold;
+        this.inputFiles = inputFiles;
+        this.graphCache = graphCache;
+        this.options = options;
+        this.subgraph = subgraph;
+    }
+
+    @Override
+    public void run(TaskMonitor monitor) throws Exception {
+        monitor.setTitle("Building a consensus of " + inputFiles.size() + " Tetrad graphs");
+        monitor.setProgress(0.0);
+
+        ImportProgress progress = new ImportProgress(monitor, () -> cancelled);
+        ImportMetrics.resetPeakHeap();
+        progress.getMetrics().start();
+
+        final TetradGraphCache fileCache = options.useGraphCache ? graphCache : null;
+
+        BootstrapConsensus consensus = new BootstrapConsensus();
+        progress.startStage(ImportStage.READ);
+        List<String> failedFiles;
+        try {
+            failedFiles = new OrderedFileReader<TetradGraphData>(inputFiles, () -> cancelled).readAll((index, file) -> {
+                // Every edge is counted, the thresholds apply to the frequencies
+                ImportProgress fileProgress = new ImportProgress(null, () -> cancelled);
+                if (fileCache != null) {
+                    return fileCache.read(file.toPath(), EdgeProbabilityFilter.ACCEPT_ALL, fileProgress);
+                }
+                return TetradGraphFiles.read(file.toPath(), EdgeProbabilityFilter.ACCEPT_ALL, fileProgress);
+            }, (index, file, tetradGraph) -> {
+                consensus.add(tetradGraph);
+                bytesRead += file.length();
+                progress.update(index + 1, inputFiles.size());
+            }, monitor);
+        } catch (CancellationException e) {
+            return;
+        }
+        progress.endStage();
+
+        if (!failedFiles.isEmpty()) {
+            monitor.showMessage(TaskMonitor.Level.WARN, failedFiles.size() + " of " + inputFiles.size() + " files could not be read: " + failedFiles);
+        }
+        if (consensus.getGraphCount() == 0) {
+            monitor.showMessage(TaskMonitor.Level.ERROR, "None of the files could be read, no consensus network was created.");
+            return;
+        }
+        if (consensus.getUnknownEdgeCount() > 0) {
+            monitor.showMessage(TaskMonitor.Level.WARN, consensus.getUnknownEdgeCount() + " edges with endpoints of no Tetrad edge type were not counted.");
+        }
+
+        // The metrics json of a consensus goes next to the directory of its files
+        Path inputDirectory = inputFiles.get(0).toPath().toAbsolutePath().getParent();
+        progress.getMetrics().setInput(inputDirectory, bytesRead);
+        progress.getMetrics().setOptions(options, subgraph);
+
+        CyNetworkView myView;
+        try {
+            progress.startStage(ImportStage.CONVERT);
+            TetradGraphData tetradGraph = subgraph.extract(consensus.finish(options.createEdgeFilter()));
+            progress.endStage();
+
+            if (tetradGraph.getDroppedEdgeCount() > 0) {
+                monitor.showMessage(TaskMonitor.Level.INFO, tetradGraph.getDroppedEdgeCount()
+                        + " edges were left out by the probability thresholds.");
+            }
+
+            String networkName = TetradNetworkBuilder.NETWORK_NAME + " - consensus of " + consensus.getGraphCount() + " graphs";
+            myView = tetradNetworkImporter.importGraph(tetradGraph, networkName, options, viewThreshold, progress);
+        } catch (CancellationException e) {
+            // Whatever was built so far has already been dropped
+            return;
+        }
+
+        monitor.showMessage(TaskMonitor.Level.INFO, progress.getTimings());
+        progress.getMetrics().log(inputDirectory, monitor, options.writeMetricsFile);
+
+        // use the tetrad style in its own task so it can be cancelled
+        if (myView != null) {
+            insertTasksAfterCurrentTask(tetradNetworkImporter.createStyleTask(myView));
+        }
+    }
+
+}
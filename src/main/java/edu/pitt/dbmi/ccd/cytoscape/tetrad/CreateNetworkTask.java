@@ -1,305 +1,139 @@
 package edu.pitt.dbmi.ccd.cytoscape.tetrad;
 
-import edu.cmu.tetrad.graph.EdgeTypeProbability;
-import edu.cmu.tetrad.graph.Endpoint;
-import edu.cmu.tetrad.graph.Graph;
-import edu.cmu.tetrad.graph.Node;
-import edu.cmu.tetrad.util.JsonUtils;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.*;
-import static java.util.stream.Collectors.joining;
-import org.cytoscape.application.CyApplicationManager;
-import org.cytoscape.model.*;
-import org.cytoscape.task.read.LoadVizmapFileTaskFactory;
+import java.util.concurrent.CancellationException;
+import org.cytoscape.model.CyNetwork;
 import org.cytoscape.view.model.CyNetworkView;
-import org.cytoscape.view.model.CyNetworkViewFactory;
-import org.cytoscape.view.model.CyNetworkViewManager;
-import org.cytoscape.view.vizmap.VisualMappingManager;
-import org.cytoscape.view.vizmap.VisualStyle;
 import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.ContainsTunables;
 import org.cytoscape.work.TaskMonitor;
-import org.json.JSONObject;
+import org.cytoscape.work.Tunable;
 
 public class CreateNetworkTask extends AbstractTask {
 
-    private final CyNetworkManager cyNetworkManager;
-    private final CyNetworkFactory cyNetworkFactory;
-    private final CyNetworkViewFactory cyNetworkViewFactory;
-    private final CyNetworkViewManager cyNetworkViewManager;
-    private final LoadVizmapFileTaskFactory loadVizmapFileTaskFactory;
-    private final VisualMappingManager visualMappingManager;
+    private final TetradNetworkImporter tetradNetworkImporter;
 
-    private final String inputFileName;
+    // Parsed graphs of earlier imports, may be null
+    private final TetradGraphCache graphCache;
 
-    private static final String NETWORK_NAME = "Tetrad Output Network";
-    private static final String CCD_ANNOTATIONS = "__CCD_Annotations";
-    private static final String CCD_ANNOTATION_SET = "__CCD_Annotation_Set";
+    private final String inputFileName;
+    private final int viewThreshold;
 
-    public CreateNetworkTask(final CyApplicationManager appMgr,
-            final CyNetworkManager netMgr,
-            final CyNetworkFactory netFactory,
-            final CyNetworkViewManager netViewMgr,
-            final CyNetworkViewFactory netViewFactory,
-            final LoadVizmapFileTaskFactory loadVizmapFileTaskFactory,
-            final VisualMappingManager vizMappingMgr,
-            String fileName) {
+    // The network that was current when the import was started, may be null
+    private final CyNetwork currentNetwork;
 
-        this.cyNetworkManager = netMgr;
-        this.cyNetworkFactory = netFactory;
-        this.cyNetworkViewManager = netViewMgr;
-        this.cyNetworkViewFactory = netViewFactory;
-        this.loadVizmapFileTaskFactory = loadVizmapFileTaskFactory;
-        this.visualMappingManager = vizMappingMgr;
-        this.inputFileName = fileName;
-    }
+    @ContainsTunables
+    public ImportOptions options = new ImportOptions();
 
-    public Graph extractTetradGraphFromFile(final String fileName) {
-        Graph tetradGraph = null;
+    @ContainsTunables
+    public SubgraphOptions subgraph = new SubgraphOptions();
 
-        Path file = Paths.get(fileName);
+    @Tunable(description = "Refresh the current network instead of creating a new one", gravity = 10.0)
+    public boolean refreshCurrentNetwork = false;
 
-        try {
-            // Read Tetrad generated json file 
-            String contents = new String(Files.readAllBytes(file));
+    public CreateNetworkTask(final TetradNetworkImporter tetradNetworkImporter,
+            int viewThreshold,
+            String fileName,
+            CyNetwork currentNetwork,
+            TetradGraphCache graphCache) {
 
-            JSONObject jsonObj = new JSONObject(contents);
-            
-            // Parse to Tetrad graph
-            // If tetrad json file saved from Dag, SemGraph, or TimelagGraph, we'll have the "graph" property
-            // Otherwise a regular tetrad graph will save the json without wrapping into "graph" property
-            if (jsonObj.has("graph")) {
-                tetradGraph = JsonUtils.parseJSONObjectToTetradGraph(jsonObj.getJSONObject("graph"));
-            } else {
-                tetradGraph = JsonUtils.parseJSONObjectToTetradGraph(jsonObj);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        return tetradGraph;
+        this.tetradNetworkImporter = tetradNetworkImporter;
+        this.graphCache = graphCache;
+        this.viewThreshold = viewThreshold;
+        this.inputFileName = fileName;
+        this.currentNetwork = currentNetwork;
     }
 
-    public List<Edge> extractEdgesFromTetradGraph(Graph tetradGraph) {
-        List<Edge> cytoEdges = new LinkedList<>();
-
-        // Extract the edges, this is the tetrad graph edges.
-        // We'll convert them into cyto Edge
-        Set<edu.cmu.tetrad.graph.Edge> tetradGraphEdges = tetradGraph.getEdges();
-
-        // For each edge determine the types of endpoints to figure out edge type.
-        // Basically convert to these '-->', 'o-o', or 'o->' strings
-        tetradGraphEdges.stream().map((tetradGraphEdge) -> {
-            String edgeType = "";
-            Endpoint endpoint1 = tetradGraphEdge.getEndpoint1();
-            Endpoint endpoint2 = tetradGraphEdge.getEndpoint2();
-
-            String endpoint1Str = "";
-            if (endpoint1 == Endpoint.TAIL) {
-                endpoint1Str = "-";
-            } else if (endpoint1 == Endpoint.ARROW) {
-                endpoint1Str = "<";
-            } else if (endpoint1 == Endpoint.CIRCLE) {
-                endpoint1Str = "o";
-            }
-
-            String endpoint2Str = "";
-            if (endpoint2 == Endpoint.TAIL) {
-                endpoint2Str = "-";
-            } else if (endpoint2 == Endpoint.ARROW) {
-                endpoint2Str = ">";
-            } else if (endpoint2 == Endpoint.CIRCLE) {
-                endpoint2Str = "o";
-            }
-            // Produce a string representation of the edge
-            edgeType = endpoint1Str + "-" + endpoint2Str;
-
-            // Extract the probability of an edge - find out what column name in cytoscape Mark needs is in
-            // Will need to use the latest release of Tetrad to have this feature available
-            List<EdgeTypeProbability> edgeTypeProbabilities = tetradGraphEdge.getEdgeTypeProbabilities();
-
-            // Create a new Edge(String source, String target, String type, List<EdgeTypeProbability> edgeTypeProbabilities)
-            // This is the cyto edge object in this package, not the edu.cmu.tetrad.graph.Edge
-            Edge cytoEdge = new Edge(tetradGraphEdge.getNode1().getName(), tetradGraphEdge.getNode2().getName(), edgeType, edgeTypeProbabilities);
+    public TetradGraphData extractTetradGraphFromFile(final String fileName) throws IOException {
+        return extractTetradGraphFromFile(fileName, ImportProgress.none());
+    }
 
-            return cytoEdge;
-        }).forEach((cytoEdge) -> {
-            // Add to the list
-            cytoEdges.add(cytoEdge);
-        });
+    public TetradGraphData extractTetradGraphFromFile(final String fileName, ImportProgress progress) throws IOException {
+        if (graphCache != null && options.useGraphCache) {
+            // Skips the parsing if the same file was imported before
+            return graphCache.read(Paths.get(fileName), options.createEdgeFilter(), progress);
+        }
 
-        return cytoEdges;
+        // Stream the Tetrad generated json file (or its .json.gz / binary form) straight into nodes and edges
+        return TetradGraphFiles.read(Paths.get(fileName), options.createEdgeFilter(), progress);
     }
 
     @Override
-    public void run(TaskMonitor monitor) {
-        Graph tetradGraph = extractTetradGraphFromFile(inputFileName);
-
-        // Get nodes from tetrad graph directly
-        List<Node> tetradGraphNodes = tetradGraph.getNodes();
-        // Need to convert the tetrad edges into cyto edge that can be used later
-        List<Edge> cytoEdges = extractEdgesFromTetradGraph(tetradGraph);
-
-        // Create the cytoscape network
-        CyNetwork myNet = cyNetworkFactory.createNetwork();
-
-        // Network Table
-        CyTable myNetTable = myNet.getDefaultNetworkTable();
-
-        // Set the name for network in Network Table
-        myNet.getRow(myNet).set(CyNetwork.NAME, NETWORK_NAME);
-
-        // Create "__CCD_Annotaions" column in Network Table
-        myNetTable.createListColumn(CCD_ANNOTATIONS, String.class, true);
-
-        // Column list
-        List<String> __CCD_Annotations = new LinkedList<>();
-
-        // Node Table
-        CyTable myNodeTable = myNet.getDefaultNodeTable();
-
-        // Create the "__CCD_Annotation_Set" column in Node Table
-        myNodeTable.createListColumn(CCD_ANNOTATION_SET, String.class, true);
-
-        // Add nodes
-        HashMap<String, CyNode> nodeName2CyNodeMap = new HashMap<>();
-
-        tetradGraphNodes.stream().forEach((Node tetradGraphNode) -> {
-            CyNode myNode = myNet.addNode();
-
-            CyRow myRow = myNodeTable.getRow(myNode.getSUID());
-
-            // Set name for new node
-            myRow.set(CyNetwork.NAME, tetradGraphNode.getName());
-
-            // Empty list now since we don't have annotations tied to nodes
-            myRow.set(CCD_ANNOTATION_SET, new LinkedList<>());
-
-            // Add to the map
-            nodeName2CyNodeMap.put(tetradGraphNode.getName(), myNode);
-        });
-
-        // Store all the unique edge types and their corresponding UUIDs for later reuse
-        HashMap<String, String> edgeType2UUIDMap = new HashMap<>();
-
-        // Edge Table
-        CyTable myEdgeTable = myNet.getDefaultEdgeTable();
-
-        // Create the "__CCD_Annotation_Set" column in Edge Table
-        myEdgeTable.createListColumn(CCD_ANNOTATION_SET, String.class, true);
-
-        // Add edges
-        cytoEdges.stream().forEach((Edge edge) -> {
-            // Column list
-            List<String> __CCD_Annotation_Set = new LinkedList<>();
-
-            // Set "interaction" and "name" in each row
-            CyEdge myEdge = myNet.addEdge(nodeName2CyNodeMap.get(edge.getSource()), nodeName2CyNodeMap.get(edge.getTarget()), true);
-            CyRow myRow = myEdgeTable.getRow(myEdge.getSUID());
-            myRow.set(CyEdge.INTERACTION, edge.getType());
-            myRow.set(CyNetwork.NAME, edge.getSource() + " (" + edge.getType() + ") " + edge.getTarget());
-
-            // Get edgeTypeProbabilities
-            List<EdgeTypeProbability> edgeTypeProbabilities = edge.getEdgeTypeProbabilities();
-
-            // EdgeTypeProbability that has the max probablity value and EdgeType is not nil
-            EdgeTypeProbability maxEdgeTypeProbability = null;
-
-            // Find the max edge type probablity if generated by bootstraping
-            if (!edgeTypeProbabilities.isEmpty()) {
-                // Comparator
-                final Comparator<EdgeTypeProbability> comparator = (etp1, etp2) -> Double.compare(etp1.getProbability(), etp2.getProbability());
+    public void run(TaskMonitor monitor) throws Exception {
+        if (inputFileName == null) {
+            throw new IllegalStateException("No Tetrad json file to import.");
+        }
 
-                // Find the EdgeTypeProbability that has the max probablity value and EdgeType is not nil
-                maxEdgeTypeProbability = edgeTypeProbabilities.stream()
-                        .filter(edgeTypeProbability -> !edgeTypeProbability.getEdgeType().equals(EdgeTypeProbability.EdgeType.nil))
-                        .max(comparator)
-                        .get();
-                
-                // Generate a new UUID for this edge type if not found
-                String edgeTypeName = maxEdgeTypeProbability.getEdgeType().name();
+        // A refresh matches nodes by name and removes the rest, only Tetrad imports can take that
+        boolean refresh = refreshCurrentNetwork && currentNetwork != null;
+        if (refresh && currentNetwork.getDefaultNetworkTable().getColumn(ImportMetrics.INPUT_FILE_COLUMN) == null) {
+            throw new IllegalStateException("The current network was not imported from a Tetrad file and can't be refreshed.");
+        }
 
-                if (edgeType2UUIDMap.get(edgeTypeName) == null) {
-                    // Generate new UUID
-                    String a_id = UUID.randomUUID().toString();
-                    // Add to map for later reuse
-                    edgeType2UUIDMap.put(edgeTypeName, a_id);
+        monitor.setTitle("Importing Tetrad graph");
+        ImportProgress progress = new ImportProgress(monitor, () -> cancelled);
 
-                    // Use LinkedHashMap to keeps the keys in the order they were inserted
-                    Map<String, String> maxEdgeTypeAnnoArgs = new LinkedHashMap<>();
+        Path inputFile = Paths.get(inputFileName);
+        ImportMetrics.resetPeakHeap();
+        progress.getMetrics().start();
+        progress.getMetrics().setInput(inputFile, Files.size(inputFile));
+        progress.getMetrics().setOptions(options, subgraph);
 
-                    // A unique identifier for the annotation (separate from the Cytoscape generated annotation uuid)
-                    maxEdgeTypeAnnoArgs.put("uuid", a_id);
-                    // The naming information for the annotation (for example: tt, ta edge types)
-                    maxEdgeTypeAnnoArgs.put("name", edgeTypeName);
-                    // The type of the value (string, float, char, bool)
-                    maxEdgeTypeAnnoArgs.put("type", "float");
-                    // A description for the annotation name
-                    maxEdgeTypeAnnoArgs.put("description", "The edge type that has max probability value");
+        TetradGraphData tetradGraph;
+        CyNetworkView myView = null;
+        try {
+            progress.startStage(ImportStage.READ);
+            tetradGraph = extractTetradGraphFromFile(inputFileName, progress);
+            progress.endStage();
+
+            if (subgraph.isEnabled()) {
+                // Only the part of the graph that was asked for becomes Cytoscape objects
+                progress.startStage(ImportStage.CONVERT);
+                tetradGraph = subgraph.extract(tetradGraph);
+                progress.endStage();
+            }
 
-                    // Convert args into "key1=val1|key2=val2" string format
-                    String formattedEdgeTypeAnnoArgs = maxEdgeTypeAnnoArgs.entrySet()
-                            .stream()
-                            .map(e -> e.getKey() + "=" + e.getValue())
-                            .collect(joining("|"));
+            if (tetradGraph.getDroppedEdgeCount() > 0) {
+                monitor.showMessage(TaskMonitor.Level.INFO, tetradGraph.getDroppedEdgeCount()
+                        + " edges were left out by the probability thresholds.");
+            }
 
-                    // Add to the "__CCD_Annotations" column in Network Table
-                    __CCD_Annotations.add(formattedEdgeTypeAnnoArgs);
+            if (refresh) {
+                // Only add, remove or update what changed, the view and its layout are kept
+                NetworkChanges changes = tetradNetworkImporter.refreshNetwork(currentNetwork, tetradGraph, options, progress);
+                progress.finish(tetradGraph).writeTo(currentNetwork);
+                monitor.showMessage(TaskMonitor.Level.INFO, changes.toString());
+            } else {
+                if (refreshCurrentNetwork) {
+                    monitor.showMessage(TaskMonitor.Level.WARN, "There is no current network to refresh, a new network is created instead.");
                 }
 
-                // Each item in __CCD_Annotation_Set
-                Map<String, String> annoSetArgs = new LinkedHashMap<>();
-                // The CCD annotation uuid from __CCD_Annotations
-                annoSetArgs.put("a_id", edgeType2UUIDMap.get(edgeTypeName));
-                // The Cytoscape annotation uuid
-                annoSetArgs.put("cy_id", UUID.randomUUID().toString());
-                // The type of the value is provided by the type property of the CCD annotation mapped by a_id
-                annoSetArgs.put("value", Double.toString(maxEdgeTypeProbability.getProbability()));
-
-                // Convert args into "key1=val1|key2=val2" string format
-                String formattedAnnoSetArgs = annoSetArgs.entrySet()
-                        .stream()
-                        .map(e -> e.getKey() + "=" + e.getValue())
-                        .collect(joining("|"));
-
-                // Add to "__CCD_Annotation_Set" column in Edge Table
-                __CCD_Annotation_Set.add(formattedAnnoSetArgs);
-                myRow.set(CCD_ANNOTATION_SET, __CCD_Annotation_Set);
-            } else {
-                String edgeName = edge.getSource() + edge.getType() + edge.getTarget();
-                System.out.println("This edge [" + edgeName + "] doesn't have edge type probablities information.");
+                myView = tetradNetworkImporter.importGraph(tetradGraph, TetradNetworkBuilder.NETWORK_NAME, options, viewThreshold, progress);
             }
-        });
-
-        // Add all items to "__CCD_Annotations" column in the Network Table
-        myNet.getRow(myNet).set(CCD_ANNOTATIONS, __CCD_Annotations);
-
-        // Add the network to Cytoscape
-        cyNetworkManager.addNetwork(myNet);
+        } catch (CancellationException e) {
+            // A new network has already been dropped, a refresh keeps what it changed so far
+            return;
+        }
 
-        // Create a new network view
-        CyNetworkView myView = cyNetworkViewFactory.createNetworkView(myNet);
+        monitor.showMessage(TaskMonitor.Level.INFO, progress.getTimings());
+        progress.getMetrics().log(inputFile, monitor, options.writeMetricsFile);
 
-        // Add view to Cytoscape
-        cyNetworkViewManager.addNetworkView(myView);
+        if (refresh) {
+            return;
+        }
 
-        // perform statistical analysis
-        // do organic layout
-        // use the tetrad style
-        InputStream stream = getClass().getResourceAsStream("/tetrad.xml");
-        if (stream != null) {
-            Set<VisualStyle> visualStyles = loadVizmapFileTaskFactory.loadStyles(stream);
-            VisualStyle vs = (VisualStyle) visualStyles.toArray()[0];
-            visualMappingManager.addVisualStyle(vs);
-            vs.apply(myView);
-            myView.updateView();
-        } else {
-            // TODO: log this properly
-            System.err.println("Could not load style - null");
+        if (myView == null) {
+            monitor.showMessage(TaskMonitor.Level.INFO, "The network has " + TetradNetworkImporter.getGraphSize(tetradGraph)
+                    + " nodes and edges, no view was created. Use Create View to open it.");
+            return;
         }
 
+        // perform statistical analysis
+        // use the tetrad style in its own task so it can be cancelled
+        insertTasksAfterCurrentTask(tetradNetworkImporter.createStyleTask(myView));
     }
+
 }
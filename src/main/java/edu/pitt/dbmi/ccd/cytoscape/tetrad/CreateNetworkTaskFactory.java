@@ -1,57 +1,79 @@
 package edu.pitt.dbmi.ccd.cytoscape.tetrad;
 
+import java.io.File;
+import java.util.List;
 import org.cytoscape.application.CyApplicationManager;
+import org.cytoscape.event.CyEventHelper;
 import org.cytoscape.model.CyNetworkFactory;
 import org.cytoscape.model.CyNetworkManager;
-import org.cytoscape.task.read.LoadVizmapFileTaskFactory;
 import org.cytoscape.view.model.CyNetworkViewFactory;
 import org.cytoscape.view.model.CyNetworkViewManager;
-import org.cytoscape.view.vizmap.VisualMappingManager;
 import org.cytoscape.work.AbstractTaskFactory;
 import org.cytoscape.work.TaskIterator;
 
 public class CreateNetworkTaskFactory extends AbstractTaskFactory {
 
+    // Graphs with more nodes plus edges than this are imported without a view
+    public static final int DEFAULT_VIEW_THRESHOLD = 100000;
+
     private final CyApplicationManager cyApplicationManager;
     private final CyNetworkManager cyNetworkManager;
-    private final CyNetworkFactory cyNetworkFactory;
-    private final CyNetworkViewFactory cyNetworkViewFactory;
-    private final CyNetworkViewManager cyNetworkViewManager;
-    private final LoadVizmapFileTaskFactory loadVizmapFileTaskFactory;
-    private final VisualMappingManager visualMappingManager;
-    private String inputFileName;
+    private final TetradNetworkImporter tetradNetworkImporter;
+    private final TetradGraphCache graphCache;
+    private int viewThreshold = DEFAULT_VIEW_THRESHOLD;
 
     public CreateNetworkTaskFactory(final CyApplicationManager cyApplicationManager,
             final CyNetworkManager cyNetworkManager,
             final CyNetworkFactory cyNetworkFactory,
             final CyNetworkViewFactory cyNetworkViewFactory,
             final CyNetworkViewManager cyNetworkViewManager,
-            final LoadVizmapFileTaskFactory loadVizmapFileTaskFactory,
-            final VisualMappingManager visualMappingManager) {
+            final TetradVisualStyle tetradVisualStyle,
+            final CyEventHelper cyEventHelper,
+            final DeferredViewListener deferredViewListener,
+            final TetradGraphCache graphCache) {
 
         this.cyApplicationManager = cyApplicationManager;
         this.cyNetworkManager = cyNetworkManager;
-        this.cyNetworkFactory = cyNetworkFactory;
-        this.cyNetworkViewFactory = cyNetworkViewFactory;
-        this.cyNetworkViewManager = cyNetworkViewManager;
-        this.loadVizmapFileTaskFactory = loadVizmapFileTaskFactory;
-        this.visualMappingManager = visualMappingManager;
+        this.graphCache = graphCache;
+        this.tetradNetworkImporter = new TetradNetworkImporter(cyNetworkManager,
+                cyNetworkViewFactory,
+                cyNetworkViewManager,
+                new TetradNetworkBuilder(cyNetworkFactory, cyEventHelper),
+                tetradVisualStyle,
+                deferredViewListener,
+                cyEventHelper
+        );
+    }
+
+    public TetradNetworkImporter getTetradNetworkImporter() {
+        return tetradNetworkImporter;
+    }
+
+    public int getViewThreshold() {
+        return viewThreshold;
+    }
+
+    public void setViewThreshold(int viewThreshold) {
+        this.viewThreshold = viewThreshold;
     }
 
-    public void setInputFileName(String inputFileName) {
-        this.inputFileName = inputFileName;
+    /**
+     * @param inputFiles Tetrad json files, one network is created per file
+     * @return the tasks importing the files
+     */
+    public TaskIterator createTaskIterator(List<File> inputFiles) {
+        if (inputFiles.size() == 1) {
+            return new TaskIterator(new CreateNetworkTask(tetradNetworkImporter, viewThreshold, inputFiles.get(0).getAbsolutePath(), cyApplicationManager.getCurrentNetwork(), graphCache));
+        }
+
+        return new TaskIterator(new BatchImportTask(tetradNetworkImporter, viewThreshold, inputFiles, graphCache));
     }
 
+    /**
+     * The "tetrad import" command, the file is one of its arguments.
+     */
     @Override
     public TaskIterator createTaskIterator() {
-        return new TaskIterator(new CreateNetworkTask(cyApplicationManager,
-                cyNetworkManager,
-                cyNetworkFactory,
-                cyNetworkViewManager,
-                cyNetworkViewFactory,
-                loadVizmapFileTaskFactory,
-                visualMappingManager,
-                inputFileName
-        ));
+        return new TaskIterator(new ImportCommandTask(tetradNetworkImporter, viewThreshold, graphCache));
     }
 }
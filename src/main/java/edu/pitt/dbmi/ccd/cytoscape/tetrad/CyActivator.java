@@ -1,16 +1,23 @@
 package edu.pitt.dbmi.ccd.cytoscape.tetrad;
 
+import java.io.File;
 import java.util.Properties;
+import org.cytoscape.application.CyApplicationConfiguration;
 import org.cytoscape.application.CyApplicationManager;
 import org.cytoscape.application.swing.CyAction;
 import org.cytoscape.application.swing.CySwingApplication;
+import org.cytoscape.event.CyEventHelper;
 import org.cytoscape.model.CyNetworkFactory;
 import org.cytoscape.model.CyNetworkManager;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedListener;
 import org.cytoscape.service.util.AbstractCyActivator;
+import org.cytoscape.task.NetworkTaskFactory;
 import org.cytoscape.task.read.LoadVizmapFileTaskFactory;
 import org.cytoscape.view.model.CyNetworkViewFactory;
 import org.cytoscape.view.model.CyNetworkViewManager;
+import org.cytoscape.view.model.events.NetworkViewAddedListener;
 import org.cytoscape.view.vizmap.VisualMappingManager;
+import org.cytoscape.work.ServiceProperties;
 import org.cytoscape.work.TaskFactory;
 import org.cytoscape.work.swing.DialogTaskManager;
 import org.osgi.framework.BundleContext;
@@ -21,6 +28,8 @@ import org.osgi.framework.BundleContext;
  */
 public class CyActivator extends AbstractCyActivator {
 
+    private TetradVisualStyle tetradVisualStyle;
+
     public CyActivator() {
         super();
     }
@@ -41,17 +50,72 @@ public class CyActivator extends AbstractCyActivator {
         LoadVizmapFileTaskFactory loadVizmapFileTaskFactory = getService(bc, LoadVizmapFileTaskFactory.class);
         VisualMappingManager visualMappingManager = getService(bc, VisualMappingManager.class);
 
+        CyEventHelper cyEventHelper = getService(bc, CyEventHelper.class);
+
+        CyApplicationConfiguration cyApplicationConfiguration = getService(bc, CyApplicationConfiguration.class);
+
+        // Parsed graphs are cached in the app's configuration directory, -Dtetrad.graphCacheSize=0 turns it off
+        TetradGraphCache graphCache = null;
+        long graphCacheSize = Long.getLong("tetrad.graphCacheSize", TetradGraphCache.DEFAULT_MAX_SIZE_MB);
+        if (graphCacheSize > 0) {
+            File cacheDirectory = new File(cyApplicationConfiguration.getAppConfigurationDirectoryLocation(CyActivator.class), "graph-cache");
+            graphCache = new TetradGraphCache(cacheDirectory.toPath(), graphCacheSize * 1024 * 1024);
+        }
+
+        // Loaded from tetrad.xml once and shared by all imports
+        tetradVisualStyle = new TetradVisualStyle(loadVizmapFileTaskFactory, visualMappingManager);
+
+        DeferredViewListener deferredViewListener = new DeferredViewListener(
+                dialogTaskManager,
+                tetradVisualStyle
+        );
+
+        registerService(bc, deferredViewListener, NetworkViewAddedListener.class, new Properties());
+        registerService(bc, deferredViewListener, NetworkAboutToBeDestroyedListener.class, new Properties());
+
         CreateNetworkTaskFactory createNetworkTaskFactory = new CreateNetworkTaskFactory(
                 cyApplicationManager,
                 cyNetworkManager,
                 cyNetworkFactory,
                 cyNetworkViewFactory,
                 cyNetworkViewManager,
-                loadVizmapFileTaskFactory,
-                visualMappingManager
+                tetradVisualStyle,
+                cyEventHelper,
+                deferredViewListener,
+                graphCache
         );
 
-        registerService(bc, createNetworkTaskFactory, TaskFactory.class, new Properties());
+        // Allow the view threshold to be tuned with -Dtetrad.viewThreshold=...
+        createNetworkTaskFactory.setViewThreshold(Integer.getInteger("tetrad.viewThreshold", CreateNetworkTaskFactory.DEFAULT_VIEW_THRESHOLD));
+
+        // Scripts and CyREST import with "tetrad import file=..."
+        Properties importCommandProperties = new Properties();
+        importCommandProperties.setProperty(ServiceProperties.COMMAND_NAMESPACE, "tetrad");
+        importCommandProperties.setProperty(ServiceProperties.COMMAND, "import");
+        importCommandProperties.setProperty(ServiceProperties.COMMAND_DESCRIPTION, "Import a Tetrad graph file as a network");
+        registerService(bc, createNetworkTaskFactory, TaskFactory.class, importCommandProperties);
+
+        // Networks imported as a part of a large graph grow from the file on demand
+        ExpandNeighborhoodTaskFactory expandNeighborhoodTaskFactory = new ExpandNeighborhoodTaskFactory(
+                createNetworkTaskFactory.getTetradNetworkImporter(),
+                graphCache
+        );
+
+        Properties expandNeighborhoodProperties = new Properties();
+        expandNeighborhoodProperties.setProperty(ServiceProperties.PREFERRED_MENU, "Apps.Tetrad");
+        expandNeighborhoodProperties.setProperty(ServiceProperties.TITLE, "Expand Neighborhood");
+        registerService(bc, expandNeighborhoodTaskFactory, NetworkTaskFactory.class, expandNeighborhoodProperties);
+
+        // Edited networks go back to Tetrad with File -> Export or "tetrad export file=..."
+        ExportTetradFileTaskFactory exportTetradFileTaskFactory = new ExportTetradFileTaskFactory(cyNetworkViewManager);
+
+        Properties exportProperties = new Properties();
+        exportProperties.setProperty(ServiceProperties.PREFERRED_MENU, "File.Export");
+        exportProperties.setProperty(ServiceProperties.TITLE, "Network to Tetrad Graph JSON...");
+        exportProperties.setProperty(ServiceProperties.COMMAND_NAMESPACE, "tetrad");
+        exportProperties.setProperty(ServiceProperties.COMMAND, "export");
+        exportProperties.setProperty(ServiceProperties.COMMAND_DESCRIPTION, "Export the current network to a Tetrad graph file");
+        registerService(bc, exportTetradFileTaskFactory, NetworkTaskFactory.class, exportProperties);
 
         ImportTetradFileAction importTetradFileAction = new ImportTetradFileAction(
                 cytoscapeDesktop,
@@ -62,4 +126,12 @@ public class CyActivator extends AbstractCyActivator {
         registerService(bc, importTetradFileAction, CyAction.class, new Properties());
     }
 
+    @Override
+    public void shutDown() {
+        if (tetradVisualStyle != null) {
+            tetradVisualStyle.dispose();
+            tetradVisualStyle = null;
+        }
+    }
+
 }
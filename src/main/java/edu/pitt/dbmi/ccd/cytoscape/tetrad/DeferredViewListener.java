@@ -0,0 +1,52 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedEvent;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedListener;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.events.NetworkViewAddedEvent;
+import org.cytoscape.view.model.events.NetworkViewAddedListener;
+import org.cytoscape.work.TaskIterator;
+import org.cytoscape.work.TaskManager;
+
+/**
+ * Keeps track of the Tetrad networks imported without a view. When the user
+ * later creates a view for one of them, the Tetrad layout and style are
+ * applied to it in their own task.
+ *
+ */
+public class DeferredViewListener implements NetworkViewAddedListener, NetworkAboutToBeDestroyedListener {
+
+    private final TaskManager<?, ?> taskManager;
+    private final TetradVisualStyle tetradVisualStyle;
+
+    // Network SUID to the node layout waiting for a view
+    private final Map<Long, TetradNodeLayout> pendingLayouts = new ConcurrentHashMap<>();
+
+    public DeferredViewListener(final TaskManager<?, ?> taskManager,
+            final TetradVisualStyle tetradVisualStyle) {
+
+        this.taskManager = taskManager;
+        this.tetradVisualStyle = tetradVisualStyle;
+    }
+
+    public void deferView(Long networkSUID, TetradNodeLayout nodeLayout) {
+        pendingLayouts.put(networkSUID, nodeLayout);
+    }
+
+    @Override
+    public void handleEvent(NetworkViewAddedEvent e) {
+        CyNetworkView networkView = e.getNetworkView();
+        TetradNodeLayout nodeLayout = pendingLayouts.remove(networkView.getModel().getSUID());
+        if (nodeLayout != null) {
+            taskManager.execute(new TaskIterator(new ApplyTetradStyleTask(networkView, nodeLayout, tetradVisualStyle)));
+        }
+    }
+
+    @Override
+    public void handleEvent(NetworkAboutToBeDestroyedEvent e) {
+        pendingLayouts.remove(e.getNetwork().getSUID());
+    }
+
+}
@@ -0,0 +1,57 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.stream.IntStream;
+
+/**
+ * Splits the edges of a graph into fixed size chunks that are processed in
+ * parallel. Every chunk only writes the array slots of its own edges (or
+ * its own chunk slot), so the results are the same whatever the number of
+ * threads, and they are combined in chunk order afterwards.
+ *
+ */
+public class EdgeChunks {
+
+    // Large enough to keep the per chunk overhead small, small enough to keep 32 cores busy
+    public static final int CHUNK_SIZE = 8192;
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+
+        /**
+         * @param chunk chunk index
+         * @param from first edge of the chunk
+         * @param to end of the chunk, exclusive
+         */
+        void accept(int chunk, int from, int to);
+
+    }
+
+    private EdgeChunks() {
+    }
+
+    public static int getChunkCount(int edgeCount) {
+        return (edgeCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    /**
+     * Runs the consumer on every chunk, in parallel when there are several.
+     * Returns once all the chunks are done; an exception of any chunk, e.g.
+     * the CancellationException of ImportProgress.checkCancelled(), is thrown
+     * to the caller.
+     *
+     * @param edgeCount number of edges
+     * @param consumer called once per chunk
+     */
+    public static void forEach(int edgeCount, ChunkConsumer consumer) {
+        int chunkCount = getChunkCount(edgeCount);
+        IntStream chunks = IntStream.range(0, chunkCount);
+        if (chunkCount > 1) {
+            chunks = chunks.parallel();
+        }
+        chunks.forEach(chunk -> {
+            int from = chunk * CHUNK_SIZE;
+            consumer.accept(chunk, from, from + Math.min(CHUNK_SIZE, edgeCount - from));
+        });
+    }
+
+}
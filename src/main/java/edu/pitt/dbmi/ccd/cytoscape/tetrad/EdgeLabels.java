@@ -0,0 +1,97 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the strings the edge rows of an imported network are filled with,
+ * doing as little as possible per edge: the interaction strings come from
+ * the precomputed table of EdgeStore, node names are the single instances
+ * held by the TetradGraphData, the text of recurring probabilities is kept,
+ * and annotation ids come from AnnotationIds instead of UUID.randomUUID().
+ *
+ * Not thread safe, parallel chunks of edges each use their own instance.
+ *
+ */
+public class EdgeLabels {
+
+    // Bootstrap probabilities are mostly a few fractions of the sample count
+    private static final int MAX_CACHED_PROBABILITIES = 4096;
+
+    private final TetradGraphData tetradGraph;
+
+    // The cy_id of an edge's annotation, by edge index
+    private final AnnotationIds annotationIds;
+
+    private final Map<Double, String> probabilityTexts = new HashMap<>();
+
+    public EdgeLabels(TetradGraphData tetradGraph) {
+        this(tetradGraph, new AnnotationIds());
+    }
+
+    /**
+     * @param tetradGraph the parsed Tetrad graph
+     * @param annotationIds gives the cy_id of every edge, may be shared
+     */
+    public EdgeLabels(TetradGraphData tetradGraph, AnnotationIds annotationIds) {
+        this.tetradGraph = tetradGraph;
+        this.annotationIds = annotationIds;
+    }
+
+    /**
+     * @param edge edge index
+     * @return the "interaction" of the edge, e.g. "-->"
+     */
+    public String getInteraction(int edge) {
+        return tetradGraph.getEdges().getEdgeType(edge);
+    }
+
+    /**
+     * @param edge edge index
+     * @return the "name" of the edge, e.g. "X1 (-->) X2"
+     */
+    public String getName(int edge) {
+        EdgeStore edges = tetradGraph.getEdges();
+        String source = tetradGraph.getNodeName(edges.getSource(edge));
+        String target = tetradGraph.getNodeName(edges.getTarget(edge));
+        String interaction = edges.getEdgeType(edge);
+
+        return new StringBuilder(source.length() + interaction.length() + target.length() + 4)
+                .append(source).append(" (").append(interaction).append(") ").append(target)
+                .toString();
+    }
+
+    /**
+     * @param edge edge index
+     * @param a_id uuid of the CCD annotation of the edge type
+     * @param probability the value of the annotation
+     * @return the "a_id=..|cy_id=..|value=.." entry of the edge's
+     * "__CCD_Annotation_Set"
+     */
+    public String getAnnotation(int edge, String a_id, double probability) {
+        String cy_id = annotationIds.get(edge);
+        String value = getProbabilityText(probability);
+
+        return new StringBuilder(a_id.length() + cy_id.length() + value.length() + 20)
+                .append("a_id=").append(a_id)
+                .append("|cy_id=").append(cy_id)
+                .append("|value=").append(value)
+                .toString();
+    }
+
+    /**
+     * @return Double.toString of the probability
+     */
+    public String getProbabilityText(double probability) {
+        String text = probabilityTexts.get(probability);
+        if (text == null) {
+            text = Double.toString(probability);
+            if (probabilityTexts.size() < MAX_CACHED_PROBABILITIES) {
+                probabilityTexts.put(probability, text);
+            }
+        }
+
+        return text;
+    }
+
+}
@@ -0,0 +1,71 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import edu.cmu.tetrad.graph.EdgeTypeProbability;
+
+/**
+ * Decides while reading whether an edge generated by bootstrapping is worth
+ * turning into a Cytoscape edge, based on its edge type probabilities.
+ *
+ * An edge is dropped when the probability of its most likely non-nil edge
+ * type is below minProbability, or when its nil probability is above
+ * maxNilProbability. Edges without edge type probabilities are always kept.
+ *
+ */
+public class EdgeProbabilityFilter {
+
+    public static final EdgeProbabilityFilter ACCEPT_ALL = new EdgeProbabilityFilter(0.0, 1.0);
+
+    private static final int NIL = EdgeTypeProbability.EdgeType.nil.ordinal();
+
+    private final double minProbability;
+    private final double maxNilProbability;
+
+    public EdgeProbabilityFilter(double minProbability, double maxNilProbability) {
+        this.minProbability = minProbability;
+        this.maxNilProbability = maxNilProbability;
+    }
+
+    /**
+     * @return false if no edge can ever be dropped
+     */
+    public boolean isEnabled() {
+        return minProbability > 0.0 || maxNilProbability < 1.0;
+    }
+
+    /**
+     * @param probabilities probability per EdgeTypeProbability.EdgeType
+     * ordinal, NaN where not given
+     * @return true if the edge should be added
+     */
+    public boolean accept(double[] probabilities) {
+        if (!isEnabled()) {
+            return true;
+        }
+
+        double nilProbability = probabilities[NIL];
+        if (!Double.isNaN(nilProbability) && nilProbability > maxNilProbability) {
+            return false;
+        }
+
+        // Find the max probability of the edge types that are not nil
+        boolean hasProbabilities = !Double.isNaN(nilProbability);
+        double maxProbability = 0.0;
+        for (int i = 0; i < probabilities.length; i++) {
+            if (i != NIL && !Double.isNaN(probabilities[i])) {
+                hasProbabilities = true;
+                maxProbability = Math.max(maxProbability, probabilities[i]);
+            }
+        }
+
+        return !hasProbabilities || maxProbability >= minProbability;
+    }
+
+    public double getMinProbability() {
+        return minProbability;
+    }
+
+    public double getMaxNilProbability() {
+        return maxNilProbability;
+    }
+
+}
@@ -0,0 +1,146 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.cytoscape.model.CyRow;
+
+/**
+ * The values of the edge rows that take real work per edge - the edge
+ * names, the most likely edge types and the "__CCD_Annotation_Set" entries
+ * - computed in parallel over EdgeChunks before the rows are written.
+ *
+ * Every chunk has its own EdgeLabels and writes only the slots of its own
+ * edges, so the values are the same whatever the thread count. Writing them
+ * into the CyRows stays with the caller, on a single thread.
+ *
+ */
+public class EdgeRowValues {
+
+    private final TetradGraphData tetradGraph;
+
+    // Only the edges that have a row get values
+    private final CyRow[] myRows;
+
+    // Shared by the chunks, the id of an edge only depends on its index
+    private final AnnotationIds cyIds = new AnnotationIds();
+
+    private final String[] names;
+
+    // EdgeTypeProbability.EdgeType ordinal, -1 without probabilities
+    private final int[] maxEdgeTypes;
+
+    private String[] annotations;
+
+    /**
+     * Computes the names and the most likely edge types.
+     *
+     * @param tetradGraph the parsed Tetrad graph
+     * @param myRows edge row per edge index, may contain nulls
+     * @param progress checked for cancellation by every chunk
+     */
+    public EdgeRowValues(TetradGraphData tetradGraph, CyRow[] myRows, ImportProgress progress) {
+        this.tetradGraph = tetradGraph;
+        this.myRows = myRows;
+        this.names = new String[myRows.length];
+        this.maxEdgeTypes = new int[myRows.length];
+
+        EdgeStore edges = tetradGraph.getEdges();
+        EdgeChunks.forEach(myRows.length, (chunk, from, to) -> {
+            progress.checkCancelled();
+            EdgeLabels labels = new EdgeLabels(tetradGraph, cyIds);
+            for (int i = from; i < to; i++) {
+                if (myRows[i] != null) {
+                    names[i] = labels.getName(i);
+                    maxEdgeTypes[i] = edges.getMaxEdgeType(i);
+                } else {
+                    maxEdgeTypes[i] = -1;
+                }
+            }
+        });
+    }
+
+    public String getName(int edge) {
+        return names[edge];
+    }
+
+    /**
+     * @param edge edge index
+     * @return EdgeTypeProbability.EdgeType ordinal of the most likely non-nil
+     * edge type or -1 if there is none
+     */
+    public int getMaxEdgeType(int edge) {
+        return maxEdgeTypes[edge];
+    }
+
+    /**
+     * @return the edge types that are the most likely one of some edge, in
+     * the order of the first such edge
+     */
+    public List<Integer> getMaxEdgeTypesInOrder() {
+        // The first edge per edge type, per chunk, merged in chunk order
+        int chunkCount = EdgeChunks.getChunkCount(maxEdgeTypes.length);
+        int[][] firstEdges = new int[chunkCount][];
+        EdgeChunks.forEach(maxEdgeTypes.length, (chunk, from, to) -> {
+            int[] firstEdge = new int[EdgeStore.EDGE_TYPE_COUNT];
+            Arrays.fill(firstEdge, -1);
+            for (int i = from; i < to; i++) {
+                if (maxEdgeTypes[i] >= 0 && firstEdge[maxEdgeTypes[i]] < 0) {
+                    firstEdge[maxEdgeTypes[i]] = i;
+                }
+            }
+            firstEdges[chunk] = firstEdge;
+        });
+
+        int[] firstEdge = new int[EdgeStore.EDGE_TYPE_COUNT];
+        Arrays.fill(firstEdge, Integer.MAX_VALUE);
+        for (int[] chunkFirstEdge : firstEdges) {
+            for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                if (chunkFirstEdge[edgeType] >= 0) {
+                    firstEdge[edgeType] = Math.min(firstEdge[edgeType], chunkFirstEdge[edgeType]);
+                }
+            }
+        }
+
+        List<Integer> edgeTypes = new ArrayList<>(EdgeStore.EDGE_TYPE_COUNT);
+        for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+            if (firstEdge[edgeType] != Integer.MAX_VALUE) {
+                edgeTypes.add(edgeType);
+            }
+        }
+        edgeTypes.sort((edgeType1, edgeType2) -> Integer.compare(firstEdge[edgeType1], firstEdge[edgeType2]));
+
+        return edgeTypes;
+    }
+
+    /**
+     * Builds the "__CCD_Annotation_Set" entry of every edge that has a most
+     * likely edge type.
+     *
+     * @param annotationIds the CCD annotation uuid per edge type ordinal
+     * @param progress checked for cancellation by every chunk
+     */
+    public void buildAnnotations(String[] annotationIds, ImportProgress progress) {
+        EdgeStore edges = tetradGraph.getEdges();
+        annotations = new String[myRows.length];
+        EdgeChunks.forEach(myRows.length, (chunk, from, to) -> {
+            progress.checkCancelled();
+            EdgeLabels labels = new EdgeLabels(tetradGraph, cyIds);
+            for (int i = from; i < to; i++) {
+                int maxEdgeType = maxEdgeTypes[i];
+                if (maxEdgeType >= 0) {
+                    annotations[i] = labels.getAnnotation(i, annotationIds[maxEdgeType], edges.getProbability(i, maxEdgeType));
+                }
+            }
+        });
+    }
+
+    /**
+     * @param edge edge index
+     * @return the "__CCD_Annotation_Set" entry or null
+     */
+    public String getAnnotation(int edge) {
+        return (annotations == null) ? null : annotations[edge];
+    }
+
+}
@@ -0,0 +1,283 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import edu.cmu.tetrad.graph.EdgeTypeProbability;
+import edu.cmu.tetrad.graph.Endpoint;
+import java.util.Arrays;
+
+/**
+ * Compact storage for the edges of a Tetrad graph.
+ *
+ * Edges live in parallel primitive arrays indexed by edge number: the source
+ * and target node indexes, both endpoints packed into one byte, and one row
+ * of EDGE_TYPE_COUNT probabilities per edge (NaN where Tetrad didn't give
+ * one). The probability matrix is only allocated once an edge actually has
+ * edge type probabilities, i.e. for graphs generated by bootstrapping.
+ *
+ */
+public class EdgeStore {
+
+    // Tetrad serializes endpoints as {"ordinal": n} in this order
+    public static final Endpoint[] ENDPOINTS = {
+        Endpoint.TAIL, Endpoint.ARROW, Endpoint.CIRCLE, Endpoint.STAR, Endpoint.NULL
+    };
+
+    // Endpoint codes, the index into ENDPOINTS
+    public static final int TAIL = 0;
+    public static final int ARROW = 1;
+    public static final int CIRCLE = 2;
+
+    // Endpoint code for a missing or unknown endpoint
+    public static final int UNKNOWN_ENDPOINT = 0x0F;
+
+    public static final EdgeTypeProbability.EdgeType[] EDGE_TYPES = EdgeTypeProbability.EdgeType.values();
+
+    public static final int EDGE_TYPE_COUNT = EDGE_TYPES.length;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // The interaction string of every packed endpoint byte, built once instead of per edge
+    private static final String[] EDGE_TYPE_STRINGS = new String[256];
+
+    static {
+        for (int i = 0; i < EDGE_TYPE_STRINGS.length; i++) {
+            EDGE_TYPE_STRINGS[i] = buildEdgeType(i >> 4, i & 0x0F);
+        }
+    }
+
+    private int size = 0;
+
+    private int[] sources = new int[INITIAL_CAPACITY];
+
+    private int[] targets = new int[INITIAL_CAPACITY];
+
+    // endpoint1 in the high nibble, endpoint2 in the low nibble
+    private byte[] endpoints = new byte[INITIAL_CAPACITY];
+
+    // EDGE_TYPE_COUNT probabilities per edge, null until the first edge has any
+    private double[] probabilities;
+
+    public EdgeStore() {
+    }
+
+    /**
+     * Wraps arrays that already hold all the edges, e.g. loaded from the
+     * graph cache. The arrays are used as they are, not copied.
+     *
+     * @param sources index of node1 per edge
+     * @param targets index of node2 per edge
+     * @param endpoints both endpoint codes per edge, endpoint1 in the high nibble
+     * @param probabilities EDGE_TYPE_COUNT probabilities per edge or null
+     */
+    EdgeStore(int[] sources, int[] targets, byte[] endpoints, double[] probabilities) {
+        this.size = sources.length;
+        this.sources = sources;
+        this.targets = targets;
+        this.endpoints = endpoints;
+        this.probabilities = probabilities;
+    }
+
+    /**
+     * @param source index of node1
+     * @param target index of node2
+     * @param endpoint1 endpoint code of node1, see encodeEndpoint
+     * @param endpoint2 endpoint code of node2, see encodeEndpoint
+     * @return index of the new edge
+     */
+    public int addEdge(int source, int target, int endpoint1, int endpoint2) {
+        if (size == sources.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            endpoints = Arrays.copyOf(endpoints, capacity);
+            if (probabilities != null) {
+                growProbabilities(capacity);
+            }
+        }
+
+        sources[size] = source;
+        targets[size] = target;
+        endpoints[size] = (byte) ((endpoint1 << 4) | (endpoint2 & 0x0F));
+
+        return size++;
+    }
+
+    public void setProbability(int edge, int edgeType, double probability) {
+        if (probabilities == null) {
+            probabilities = new double[0];
+            growProbabilities(sources.length);
+        }
+        probabilities[edge * EDGE_TYPE_COUNT + edgeType] = probability;
+    }
+
+    /**
+     * Turns the edge around, node2 becomes node1. The edge stays the same
+     * Tetrad edge, e.g. "A o-> B" becomes "B <-o A", so the endpoints and the
+     * probabilities of the one-sided edge types (ta/at, ca/ac) swap too.
+     *
+     * @param edge edge index
+     */
+    public void reverse(int edge) {
+        int source = sources[edge];
+        sources[edge] = targets[edge];
+        targets[edge] = source;
+        endpoints[edge] = (byte) ((getEndpoint2(edge) << 4) | getEndpoint1(edge));
+
+        if (probabilities != null) {
+            int offset = edge * EDGE_TYPE_COUNT;
+            swap(probabilities, offset + EdgeTypeProbability.EdgeType.ta.ordinal(), offset + EdgeTypeProbability.EdgeType.at.ordinal());
+            swap(probabilities, offset + EdgeTypeProbability.EdgeType.ca.ordinal(), offset + EdgeTypeProbability.EdgeType.ac.ordinal());
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getSource(int edge) {
+        return sources[edge];
+    }
+
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    public int getEndpoint1(int edge) {
+        return (endpoints[edge] >> 4) & 0x0F;
+    }
+
+    public int getEndpoint2(int edge) {
+        return endpoints[edge] & 0x0F;
+    }
+
+    /**
+     * @param edge edge index
+     * @param edgeType EdgeTypeProbability.EdgeType ordinal
+     * @return the probability or NaN if Tetrad didn't give one
+     */
+    public double getProbability(int edge, int edgeType) {
+        return (probabilities == null) ? Double.NaN : probabilities[edge * EDGE_TYPE_COUNT + edgeType];
+    }
+
+    public boolean hasProbabilities(int edge) {
+        if (probabilities == null) {
+            return false;
+        }
+
+        int offset = edge * EDGE_TYPE_COUNT;
+        for (int i = 0; i < EDGE_TYPE_COUNT; i++) {
+            if (!Double.isNaN(probabilities[offset + i])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Find the edge type that has the max probability value and is not nil.
+     *
+     * @param edge edge index
+     * @return EdgeTypeProbability.EdgeType ordinal or -1 if there is none
+     */
+    public int getMaxEdgeType(int edge) {
+        if (probabilities == null) {
+            return -1;
+        }
+
+        int maxEdgeType = -1;
+        double maxProbability = Double.NEGATIVE_INFINITY;
+        int offset = edge * EDGE_TYPE_COUNT;
+        for (int i = 0; i < EDGE_TYPE_COUNT; i++) {
+            double probability = probabilities[offset + i];
+            if (i != EdgeTypeProbability.EdgeType.nil.ordinal() && !Double.isNaN(probability) && probability > maxProbability) {
+                maxProbability = probability;
+                maxEdgeType = i;
+            }
+        }
+
+        return maxEdgeType;
+    }
+
+    /**
+     * Basically convert to these '-->', 'o-o', or 'o->' strings
+     *
+     * @param edge edge index
+     * @return string representation of the edge
+     */
+    public String getEdgeType(int edge) {
+        return EDGE_TYPE_STRINGS[endpoints[edge] & 0xFF];
+    }
+
+    /**
+     * Trims the arrays to the number of edges.
+     */
+    public void trimToSize() {
+        sources = Arrays.copyOf(sources, size);
+        targets = Arrays.copyOf(targets, size);
+        endpoints = Arrays.copyOf(endpoints, size);
+        if (probabilities != null) {
+            probabilities = Arrays.copyOf(probabilities, size * EDGE_TYPE_COUNT);
+        }
+    }
+
+    public static int encodeEndpoint(Endpoint endpoint) {
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            if (ENDPOINTS[i] == endpoint) {
+                return i;
+            }
+        }
+
+        return UNKNOWN_ENDPOINT;
+    }
+
+    /**
+     * Determine the edge type from the types of endpoints.
+     *
+     * @param endpoint1 endpoint code of node1
+     * @param endpoint2 endpoint code of node2
+     * @return string representation of the edge, the same instance for the
+     * same endpoints
+     */
+    public static String toEdgeType(int endpoint1, int endpoint2) {
+        if (endpoint1 < 0 || endpoint1 > UNKNOWN_ENDPOINT || endpoint2 < 0 || endpoint2 > UNKNOWN_ENDPOINT) {
+            return buildEdgeType(endpoint1, endpoint2);
+        }
+
+        return EDGE_TYPE_STRINGS[(endpoint1 << 4) | endpoint2];
+    }
+
+    private static String buildEdgeType(int endpoint1, int endpoint2) {
+        String endpoint1Str = "";
+        if (endpoint1 == TAIL) {
+            endpoint1Str = "-";
+        } else if (endpoint1 == ARROW) {
+            endpoint1Str = "<";
+        } else if (endpoint1 == CIRCLE) {
+            endpoint1Str = "o";
+        }
+
+        String endpoint2Str = "";
+        if (endpoint2 == TAIL) {
+            endpoint2Str = "-";
+        } else if (endpoint2 == ARROW) {
+            endpoint2Str = ">";
+        } else if (endpoint2 == CIRCLE) {
+            endpoint2Str = "o";
+        }
+
+        return endpoint1Str + "-" + endpoint2Str;
+    }
+
+    private void growProbabilities(int capacity) {
+        int oldLength = probabilities.length;
+        probabilities = Arrays.copyOf(probabilities, capacity * EDGE_TYPE_COUNT);
+        Arrays.fill(probabilities, oldLength, probabilities.length, Double.NaN);
+    }
+
+    private static void swap(double[] values, int i, int j) {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+}
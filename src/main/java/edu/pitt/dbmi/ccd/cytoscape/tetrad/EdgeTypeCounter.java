@@ -0,0 +1,99 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.Arrays;
+
+/**
+ * Counts edge types per node pair, for building a consensus of many graphs.
+ *
+ * Pairs are kept in the order they were first seen, as node1/node2 longs,
+ * with EDGE_TYPE_COUNT int counters each. An open addressing table of pair
+ * indexes finds the pair of an edge, so there is no object per pair.
+ *
+ */
+public class EdgeTypeCounter {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int size = 0;
+
+    // node1 in the high int, node2 in the low int
+    private long[] pairs = new long[INITIAL_CAPACITY];
+
+    private int[] counts = new int[INITIAL_CAPACITY * EdgeStore.EDGE_TYPE_COUNT];
+
+    // pair index + 1 per slot, 0 for an empty slot; at most half full
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+
+    public EdgeTypeCounter() {
+    }
+
+    /**
+     * @param node1 index of node1
+     * @param node2 index of node2
+     * @param edgeType EdgeTypeProbability.EdgeType ordinal
+     */
+    public void add(int node1, int node2, int edgeType) {
+        int pair = getOrAddPair(((long) node1 << 32) | (node2 & 0xFFFFFFFFL));
+        counts[pair * EdgeStore.EDGE_TYPE_COUNT + edgeType]++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getNode1(int pair) {
+        return (int) (pairs[pair] >>> 32);
+    }
+
+    public int getNode2(int pair) {
+        return (int) pairs[pair];
+    }
+
+    public int getCount(int pair, int edgeType) {
+        return counts[pair * EdgeStore.EDGE_TYPE_COUNT + edgeType];
+    }
+
+    private int getOrAddPair(long key) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (table[slot] != 0) {
+            int pair = table[slot] - 1;
+            if (pairs[pair] == key) {
+                return pair;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == pairs.length) {
+            pairs = Arrays.copyOf(pairs, size * 2);
+            counts = Arrays.copyOf(counts, size * 2 * EdgeStore.EDGE_TYPE_COUNT);
+        }
+        pairs[size] = key;
+        table[slot] = size + 1;
+        size++;
+
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+
+        return size - 1;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int pair = 0; pair < size; pair++) {
+            int slot = hash(pairs[pair]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = pair + 1;
+        }
+    }
+
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+}
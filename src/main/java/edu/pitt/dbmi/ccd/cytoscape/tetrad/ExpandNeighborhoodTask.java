@@ -0,0 +1,125 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.TaskMonitor;
+import org.cytoscape.work.Tunable;
+
+/**
+ * Grows a network imported as a part of a large Tetrad graph: the
+ * neighbors of the selected nodes (of all nodes if none is selected) are
+ * added from the file the network was imported from, along with their
+ * edges to each other and to the nodes of the network.
+ *
+ * The file is read with the edge filter the network was imported with.
+ * Nothing already in the network is changed, so nodes and edges the user
+ * removed or added stay that way.
+ *
+ */
+public class ExpandNeighborhoodTask extends AbstractTask {
+
+    private final TetradNetworkImporter tetradNetworkImporter;
+
+    private final CyNetwork myNet;
+
+    // Parsed graphs of earlier imports, may be null
+    private final TetradGraphCache graphCache;
+
+    @Tunable(description = "Add the nodes up to this many edges away (hops)", gravity = 0.0)
+    public int hops = 1;
+
+    public ExpandNeighborhoodTask(final TetradNetworkImporter tetradNetworkImporter,
+            CyNetwork myNet,
+            TetradGraphCache graphCache) {
+
+        this.tetradNetworkImporter = tetradNetworkImporter;
+        this.myNet = myNet;
+        this.graphCache = graphCache;
+    }
+
+    /**
+     * @param myNet a network
+     * @return the Tetrad graph file the network was imported from, or null
+     */
+    public static Path getInputFile(CyNetwork myNet) {
+        if (myNet.getDefaultNetworkTable().getColumn(ImportMetrics.INPUT_FILE_COLUMN) == null) {
+            return null;
+        }
+
+        String inputFile = myNet.getRow(myNet).get(ImportMetrics.INPUT_FILE_COLUMN, String.class);
+        return (inputFile == null || !Files.isRegularFile(Paths.get(inputFile))) ? null : Paths.get(inputFile);
+    }
+
+    @Override
+    public void run(TaskMonitor monitor) throws Exception {
+        Path inputFile = getInputFile(myNet);
+        if (inputFile == null) {
+            throw new IllegalStateException("The network was not imported from a Tetrad graph file that still exists.");
+        }
+
+        monitor.setTitle("Expanding the Tetrad network");
+        ImportProgress progress = new ImportProgress(monitor, () -> cancelled);
+
+        // The same filter and level of detail as the import of the network
+        ImportOptions options = ImportOptions.readFrom(myNet);
+        SubgraphOptions subgraph = SubgraphOptions.readFrom(myNet);
+
+        // Usually in the graph cache already, from the import of the network
+        progress.startStage(ImportStage.READ);
+        TetradGraphData tetradGraph = (graphCache != null)
+                ? graphCache.read(inputFile, options.createEdgeFilter(), progress)
+                : TetradGraphFiles.read(inputFile, options.createEdgeFilter(), progress);
+
+        progress.startStage(ImportStage.CONVERT);
+        EdgeStore edges = tetradGraph.getEdges();
+        boolean[] keptEdges = new boolean[edges.size()];
+        Arrays.fill(keptEdges, true);
+        if (subgraph.topEdges > 0) {
+            // Only the edges the network could have had
+            SubgraphExtractor.topEdges(edges, subgraph.topEdges, keptEdges);
+        }
+
+        boolean[] networkNodes = new boolean[tetradGraph.getNodeCount()];
+        int[] seeds = new int[myNet.getNodeCount()];
+        int seedCount = 0;
+        List<CyNode> cyNodes = myNet.getNodeList();
+        boolean anySelected = cyNodes.stream().anyMatch(cyNode -> Boolean.TRUE.equals(myNet.getRow(cyNode).get(CyNetwork.SELECTED, Boolean.class)));
+        for (CyNode cyNode : cyNodes) {
+            CyRow myRow = myNet.getRow(cyNode);
+            int node = tetradGraph.getNodeIndex(myRow.get(CyNetwork.NAME, String.class));
+            if (node < 0) {
+                continue;
+            }
+
+            // The selected nodes grow, or all of them if none is selected
+            networkNodes[node] = true;
+            if (!anySelected || Boolean.TRUE.equals(myRow.get(CyNetwork.SELECTED, Boolean.class))) {
+                seeds[seedCount++] = node;
+            }
+        }
+
+        // Only the nodes the network doesn't have yet and the edges that touch them
+        boolean[] keptNodes = SubgraphExtractor.neighborhood(new GraphAdjacency(tetradGraph), Arrays.copyOf(seeds, seedCount), Math.max(0, hops), keptEdges);
+        boolean[] newNodes = new boolean[keptNodes.length];
+        for (int i = 0; i < keptNodes.length; i++) {
+            newNodes[i] = keptNodes[i] && !networkNodes[i];
+            keptNodes[i] |= networkNodes[i];
+        }
+        for (int i = 0; i < keptEdges.length; i++) {
+            keptEdges[i] &= newNodes[edges.getSource(i)] || newNodes[edges.getTarget(i)];
+        }
+        TetradGraphData expansion = SubgraphExtractor.subgraph(tetradGraph, keptNodes, keptEdges);
+        progress.endStage();
+
+        NetworkChanges changes = tetradNetworkImporter.expandNetwork(myNet, expansion, options, progress);
+        monitor.showMessage(TaskMonitor.Level.INFO, changes.toString());
+    }
+
+}
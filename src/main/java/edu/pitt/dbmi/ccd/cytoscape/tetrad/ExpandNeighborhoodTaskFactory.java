@@ -0,0 +1,34 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.task.AbstractNetworkTaskFactory;
+import org.cytoscape.work.TaskIterator;
+
+/**
+ * Apps &gt; Tetrad &gt; Expand Neighborhood, for networks imported from a
+ * Tetrad graph file.
+ *
+ */
+public class ExpandNeighborhoodTaskFactory extends AbstractNetworkTaskFactory {
+
+    private final TetradNetworkImporter tetradNetworkImporter;
+    private final TetradGraphCache graphCache;
+
+    public ExpandNeighborhoodTaskFactory(final TetradNetworkImporter tetradNetworkImporter,
+            TetradGraphCache graphCache) {
+
+        this.tetradNetworkImporter = tetradNetworkImporter;
+        this.graphCache = graphCache;
+    }
+
+    @Override
+    public TaskIterator createTaskIterator(CyNetwork network) {
+        return new TaskIterator(new ExpandNeighborhoodTask(tetradNetworkImporter, network, graphCache));
+    }
+
+    @Override
+    public boolean isReady(CyNetwork network) {
+        return network != null && ExpandNeighborhoodTask.getInputFile(network) != null;
+    }
+
+}
@@ -0,0 +1,99 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewManager;
+import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.TaskMonitor;
+import org.cytoscape.work.Tunable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exports a network to a Tetrad json file (.json or .json.gz), e.g. after it
+ * was pruned or edited in Cytoscape, so that it can be loaded into Tetrad
+ * again. Also the "tetrad export" command:
+ *
+ * <pre>
+ * tetrad export file=/data/pruned.json.gz
+ * </pre>
+ *
+ * The node locations are taken from the network's view, if it has one.
+ *
+ */
+public class ExportTetradFileTask extends AbstractTask {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportTetradFileTask.class);
+
+    private final CyNetworkViewManager cyNetworkViewManager;
+
+    private final CyNetwork myNet;
+
+    @Tunable(description = "Tetrad graph file (.json or .json.gz)", params = "input=false;fileCategory=network", gravity = 0.0)
+    public File file;
+
+    public ExportTetradFileTask(final CyNetworkViewManager cyNetworkViewManager, CyNetwork myNet) {
+        this.cyNetworkViewManager = cyNetworkViewManager;
+        this.myNet = myNet;
+    }
+
+    @Override
+    public void run(TaskMonitor monitor) throws Exception {
+        if (file == null) {
+            throw new IllegalArgumentException("No Tetrad graph file given, use file=<path>.");
+        }
+
+        // Tetrad reads json, anything else gets the .json extension
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        Path outputFile = (name.endsWith(TetradGraphFiles.JSON_EXTENSION) || name.endsWith(TetradGraphFiles.GZIP_JSON_EXTENSION))
+                ? file.toPath()
+                : file.toPath().resolveSibling(file.getName() + TetradGraphFiles.JSON_EXTENSION);
+
+        monitor.setTitle("Exporting to Tetrad graph " + outputFile.getFileName());
+        long start = System.nanoTime();
+
+        // The monitor is not handed on, the import stages don't fit an export
+        ImportProgress progress = new ImportProgress(null, () -> cancelled);
+
+        Collection<CyNetworkView> myViews = cyNetworkViewManager.getNetworkViews(myNet);
+        CyNetworkView myView = myViews.isEmpty() ? null : myViews.iterator().next();
+
+        try {
+            monitor.setStatusMessage("Converting the network...");
+            monitor.setProgress(0.0);
+            TetradNetworkExporter exporter = new TetradNetworkExporter(myNet, myView);
+            TetradGraphData tetradGraph = exporter.toTetradGraph(progress);
+
+            if (exporter.getUnknownInteractionCount() > 0) {
+                monitor.showMessage(TaskMonitor.Level.WARN, exporter.getUnknownInteractionCount()
+                        + " edges have no Tetrad interaction and were exported as --> or --- edges.");
+            }
+            if (exporter.getDuplicateNodeCount() > 0) {
+                monitor.showMessage(TaskMonitor.Level.WARN, exporter.getDuplicateNodeCount()
+                        + " nodes share their name with another node and were merged into it.");
+            }
+            if (exporter.getAnnotationOnlyCount() > 0) {
+                monitor.showMessage(TaskMonitor.Level.WARN, "The network has no probability columns, " + exporter.getAnnotationOnlyCount()
+                        + " edges were exported with only the probability of their most likely edge type, from the CCD annotations.");
+            }
+
+            monitor.setStatusMessage("Writing the Tetrad json file...");
+            monitor.setProgress(0.2);
+            TetradJsonWriter.write(tetradGraph, outputFile, progress);
+            monitor.setProgress(1.0);
+
+            String message = "Exported " + tetradGraph.getNodeCount() + " nodes and " + tetradGraph.getEdges().size()
+                    + " edges to " + outputFile + " in " + (System.nanoTime() - start) / 1000000L + " ms";
+            monitor.showMessage(TaskMonitor.Level.INFO, message);
+            LOGGER.info(message);
+        } catch (CancellationException e) {
+            // The file is only replaced once fully written, so nothing is left behind
+        }
+    }
+
+}
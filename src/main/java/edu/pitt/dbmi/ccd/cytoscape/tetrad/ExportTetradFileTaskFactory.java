@@ -0,0 +1,26 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.task.AbstractNetworkTaskFactory;
+import org.cytoscape.view.model.CyNetworkViewManager;
+import org.cytoscape.work.TaskIterator;
+
+/**
+ * File &gt; Export &gt; Network to Tetrad Graph JSON, and the "tetrad export"
+ * command.
+ *
+ */
+public class ExportTetradFileTaskFactory extends AbstractNetworkTaskFactory {
+
+    private final CyNetworkViewManager cyNetworkViewManager;
+
+    public ExportTetradFileTaskFactory(final CyNetworkViewManager cyNetworkViewManager) {
+        this.cyNetworkViewManager = cyNetworkViewManager;
+    }
+
+    @Override
+    public TaskIterator createTaskIterator(CyNetwork network) {
+        return new TaskIterator(new ExportTetradFileTask(cyNetworkViewManager, network));
+    }
+
+}
@@ -0,0 +1,69 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+/**
+ * Compact adjacency index of a parsed Tetrad graph, ignoring edge
+ * directions.
+ *
+ * The edges of node n are edgesByNode[offsets[n]] to
+ * edgesByNode[offsets[n + 1] - 1], so walking the graph needs two int
+ * arrays and no Cytoscape objects.
+ *
+ */
+public class GraphAdjacency {
+
+    private final EdgeStore edges;
+
+    private final int[] offsets;
+
+    private final int[] edgesByNode;
+
+    public GraphAdjacency(TetradGraphData tetradGraph) {
+        this.edges = tetradGraph.getEdges();
+
+        int nodeCount = tetradGraph.getNodeCount();
+        offsets = new int[nodeCount + 1];
+        for (int i = 0; i < edges.size(); i++) {
+            offsets[edges.getSource(i) + 1]++;
+            offsets[edges.getTarget(i) + 1]++;
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            offsets[n + 1] += offsets[n];
+        }
+
+        edgesByNode = new int[offsets[nodeCount]];
+        int[] next = new int[nodeCount];
+        System.arraycopy(offsets, 0, next, 0, nodeCount);
+        for (int i = 0; i < edges.size(); i++) {
+            edgesByNode[next[edges.getSource(i)]++] = i;
+            edgesByNode[next[edges.getTarget(i)]++] = i;
+        }
+    }
+
+    public int getNodeCount() {
+        return offsets.length - 1;
+    }
+
+    public int getDegree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * @param node node index
+     * @param i 0 to getDegree(node) - 1
+     * @return index of the i-th edge of the node
+     */
+    public int getEdge(int node, int i) {
+        return edgesByNode[offsets[node] + i];
+    }
+
+    /**
+     * @param node node index
+     * @param edge an edge of the node
+     * @return the node at the other end of the edge
+     */
+    public int getOpposite(int node, int edge) {
+        int source = edges.getSource(edge);
+        return (source == node) ? edges.getTarget(edge) : source;
+    }
+
+}
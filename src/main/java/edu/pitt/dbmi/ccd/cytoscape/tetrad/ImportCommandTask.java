@@ -0,0 +1,131 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.ContainsTunables;
+import org.cytoscape.work.ObservableTask;
+import org.cytoscape.work.TaskMonitor;
+import org.cytoscape.work.Tunable;
+
+/**
+ * The "tetrad import" command, for scripts and CyREST:
+ *
+ * <pre>
+ * tetrad import file=/data/graph.json minProbability=0.5 createView=false
+ * </pre>
+ *
+ * All the import dialog options are command arguments as well. The results
+ * are the SUID of the new network (Long), its ImportMetrics, or both as a
+ * json object (String).
+ *
+ */
+public class ImportCommandTask extends AbstractTask implements ObservableTask {
+
+    private final TetradNetworkImporter tetradNetworkImporter;
+    private final int viewThreshold;
+
+    // Parsed graphs of earlier imports, may be null
+    private final TetradGraphCache graphCache;
+
+    @Tunable(description = "Tetrad graph file (.json, .json.gz or .tgb)", params = "input=true;fileCategory=network", gravity = 0.0)
+    public File file;
+
+    @Tunable(description = "Name of the new network (default: after the file)", gravity = 0.5)
+    public String networkName;
+
+    @ContainsTunables
+    public ImportOptions options = new ImportOptions();
+
+    @ContainsTunables
+    public SubgraphOptions subgraph = new SubgraphOptions();
+
+    @Tunable(description = "Create a view, unless the graph is larger than the view threshold", gravity = 10.0)
+    public boolean createView = true;
+
+    // Set once the network was imported
+    private ImportMetrics metrics;
+
+    public ImportCommandTask(final TetradNetworkImporter tetradNetworkImporter,
+            int viewThreshold,
+            TetradGraphCache graphCache) {
+
+        this.tetradNetworkImporter = tetradNetworkImporter;
+        this.viewThreshold = viewThreshold;
+        this.graphCache = graphCache;
+    }
+
+    @Override
+    public void run(TaskMonitor monitor) throws Exception {
+        if (file == null) {
+            throw new IllegalArgumentException("No Tetrad graph file given, use file=<path>.");
+        }
+        if (!file.isFile()) {
+            throw new IOException("The Tetrad graph file " + file + " does not exist.");
+        }
+
+        monitor.setTitle("Importing Tetrad graph " + file.getName());
+        ImportProgress progress = new ImportProgress(monitor, () -> cancelled);
+
+        Path inputFile = file.toPath();
+        ImportMetrics.resetPeakHeap();
+        progress.getMetrics().start();
+        progress.getMetrics().setInput(inputFile, file.length());
+        progress.getMetrics().setOptions(options, subgraph);
+
+        CyNetworkView myView;
+        try {
+            progress.startStage(ImportStage.READ);
+            TetradGraphData tetradGraph = (graphCache != null && options.useGraphCache)
+                    ? graphCache.read(inputFile, options.createEdgeFilter(), progress)
+                    : TetradGraphFiles.read(inputFile, options.createEdgeFilter(), progress);
+            progress.endStage();
+
+            if (subgraph.isEnabled()) {
+                progress.startStage(ImportStage.CONVERT);
+                tetradGraph = subgraph.extract(tetradGraph);
+                progress.endStage();
+            }
+
+            // Without a view only the network is registered, its view can still be created later
+            String name = (networkName == null || networkName.trim().isEmpty())
+                    ? TetradNetworkBuilder.NETWORK_NAME + " - " + file.getName()
+                    : networkName;
+            myView = tetradNetworkImporter.importGraph(tetradGraph, name, options, createView ? viewThreshold : -1, progress);
+        } catch (CancellationException e) {
+            // Whatever was built so far has already been dropped
+            return;
+        }
+
+        metrics = progress.getMetrics();
+        metrics.log(inputFile, monitor, options.writeMetricsFile);
+
+        if (myView != null) {
+            insertTasksAfterCurrentTask(tetradNetworkImporter.createStyleTask(myView));
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> R getResults(Class<? extends R> type) {
+        if (metrics == null) {
+            return null;
+        }
+
+        if (type == Long.class) {
+            return (R) metrics.getNetworkSuid();
+        }
+        if (type == ImportMetrics.class) {
+            return (R) metrics;
+        }
+        if (type == String.class) {
+            return (R) metrics.toJson();
+        }
+
+        return null;
+    }
+
+}
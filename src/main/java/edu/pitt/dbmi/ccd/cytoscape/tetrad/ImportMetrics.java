@@ -0,0 +1,348 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.work.TaskMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * What one Tetrad import read, built and spent: input size, node and edge
+ * counts, time per stage and the peak heap use.
+ *
+ * The metrics are written to the network's default network table as
+ * "tetrad_import_*" columns, logged by the import tasks and optionally
+ * saved as json next to the input file.
+ *
+ */
+public class ImportMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImportMetrics.class);
+
+    public static final String COLUMN_PREFIX = "tetrad_import_";
+
+    // The file a network was imported from, in its network table
+    public static final String INPUT_FILE_COLUMN = COLUMN_PREFIX + "input_file";
+
+    // Suffix of the metrics json saved next to the input file
+    public static final String FILE_SUFFIX = ".metrics.json";
+
+    private Instant startTime = Instant.now();
+    private long startNanos = System.nanoTime();
+
+    private String inputFile;
+    private long bytesRead = 0;
+    private int nodeCount = 0;
+    private int edgeCount = 0;
+    private int droppedEdgeCount = 0;
+    private int edgesWithoutProbabilities = 0;
+    private long totalMillis = 0;
+    private long peakHeapBytes = 0;
+
+    // Files of a batch share the peak of the whole batch, it is saved under its own name
+    private String peakHeapKey = "peak_heap_bytes";
+
+    // SUID of the network the metrics were written to, null until then
+    private Long networkSuid;
+
+    private final Map<ImportStage, Long> stageMillis = new EnumMap<>(ImportStage.class);
+
+    // The options the network was built with, saved along with the metrics, may be null
+    private ImportOptions options;
+    private SubgraphOptions subgraph;
+
+    public ImportMetrics() {
+    }
+
+    /**
+     * Restarts the clock. The peak heap use is reset separately, once per
+     * import task, see resetPeakHeap.
+     */
+    public void start() {
+        startTime = Instant.now();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Marks the peak heap use as the one of the whole batch so far: the
+     * files of a batch are read side by side and the peaks are per JVM.
+     */
+    public void setBatchPeakHeap() {
+        peakHeapKey = "batch_peak_heap_bytes";
+    }
+
+    /**
+     * Resets the peak usage of the heap pools. Peaks are per JVM, so with
+     * imports running side by side they cover all of them. Called once at
+     * the start of an import task.
+     */
+    public static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    public void setInput(Path file, long bytesRead) {
+        this.inputFile = file.toString();
+        this.bytesRead = bytesRead;
+    }
+
+    /**
+     * @param options the import options, saved in the network table so the
+     * network can be expanded with the same filter later
+     * @param subgraph the level of detail options, may be null
+     */
+    public void setOptions(ImportOptions options, SubgraphOptions subgraph) {
+        this.options = options;
+        this.subgraph = subgraph;
+    }
+
+    /**
+     * Counts the nodes and edges of the graph that was imported.
+     *
+     * @param tetradGraph the parsed Tetrad graph
+     */
+    public void recordGraph(TetradGraphData tetradGraph) {
+        EdgeStore edges = tetradGraph.getEdges();
+
+        nodeCount = tetradGraph.getNodeCount();
+        edgeCount = edges.size();
+        droppedEdgeCount = tetradGraph.getDroppedEdgeCount();
+        edgesWithoutProbabilities = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (!edges.hasProbabilities(i)) {
+                edgesWithoutProbabilities++;
+            }
+        }
+    }
+
+    /**
+     * Takes the stage timings and the total time and peak heap so far.
+     *
+     * @param progress the progress of the import
+     */
+    public void finish(ImportProgress progress) {
+        for (ImportStage stage : ImportStage.values()) {
+            if (progress.hasStage(stage)) {
+                stageMillis.put(stage, progress.getStageMillis(stage));
+            }
+        }
+        totalMillis = (System.nanoTime() - startNanos) / 1000000L;
+
+        // Sum of the peaks of the heap pools, an upper bound of the peak heap use
+        peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peakHeapBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+    }
+
+    /**
+     * Writes the metrics into the default network table of the network.
+     *
+     * @param myNet the imported network
+     */
+    public void writeTo(CyNetwork myNet) {
+        CyTable myNetTable = myNet.getDefaultNetworkTable();
+        CyRow myRow = myNet.getRow(myNet);
+
+        networkSuid = myNet.getSUID();
+
+        setCell(myNetTable, myRow, "input_file", String.class, inputFile);
+        setCell(myNetTable, myRow, "start_time", String.class, startTime.toString());
+        setCell(myNetTable, myRow, "bytes_read", Long.class, bytesRead);
+        setCell(myNetTable, myRow, "nodes", Integer.class, nodeCount);
+        setCell(myNetTable, myRow, "edges", Integer.class, edgeCount);
+        setCell(myNetTable, myRow, "dropped_edges", Integer.class, droppedEdgeCount);
+        setCell(myNetTable, myRow, "edges_without_probabilities", Integer.class, edgesWithoutProbabilities);
+        for (Map.Entry<ImportStage, Long> entry : stageMillis.entrySet()) {
+            setCell(myNetTable, myRow, getStageKey(entry.getKey()), Long.class, entry.getValue());
+        }
+        setCell(myNetTable, myRow, "total_ms", Long.class, totalMillis);
+        setCell(myNetTable, myRow, peakHeapKey, Long.class, peakHeapBytes);
+
+        if (options != null) {
+            options.writeTo(myNet);
+        }
+        if (subgraph != null) {
+            subgraph.writeTo(myNet);
+        }
+    }
+
+    static <T> void setCell(CyTable myNetTable, CyRow myRow, String name, Class<T> type, T value) {
+        String columnName = COLUMN_PREFIX + name;
+        if (myNetTable.getColumn(columnName) == null) {
+            myNetTable.createColumn(columnName, type, true);
+        }
+        myRow.set(columnName, value);
+    }
+
+    /**
+     * @return the "tetrad_import_*" cell of the network, or the default value
+     * if the network doesn't have it
+     */
+    static <T> T getCell(CyNetwork myNet, String name, Class<T> type, T defaultValue) {
+        String columnName = COLUMN_PREFIX + name;
+        if (myNet.getDefaultNetworkTable().getColumn(columnName) == null) {
+            return defaultValue;
+        }
+
+        T value = myNet.getRow(myNet).get(columnName, type);
+        return (value == null) ? defaultValue : value;
+    }
+
+    /**
+     * Saves the metrics as a json object.
+     *
+     * @param file the json file to write
+     * @throws IOException
+     */
+    public void writeJson(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(toJson());
+        }
+    }
+
+    /**
+     * Saves the metrics as json next to the input file, named after it.
+     *
+     * @param inputFile the imported file
+     * @return the json file that was written
+     * @throws IOException
+     */
+    public Path writeJsonNextTo(Path inputFile) throws IOException {
+        Path metricsFile = inputFile.resolveSibling(inputFile.getFileName() + FILE_SUFFIX);
+        writeJson(metricsFile);
+
+        return metricsFile;
+    }
+
+    /**
+     * Logs the metrics and optionally saves them next to the input file. A
+     * file that can't be written is only a warning, the import succeeded.
+     *
+     * @param inputFile the imported file
+     * @param monitor shows the warning if the json can't be written, may be null
+     * @param write save the json next to the input file
+     */
+    public void log(Path inputFile, TaskMonitor monitor, boolean write) {
+        LOGGER.info(toString());
+
+        if (write) {
+            try {
+                writeJsonNextTo(inputFile);
+            } catch (IOException e) {
+                LOGGER.warn("Could not write the import metrics next to " + inputFile, e);
+                if (monitor != null) {
+                    monitor.showMessage(TaskMonitor.Level.WARN, "Could not write the import metrics next to " + inputFile + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the metrics as a json object
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        appendJson(json, "network_suid", networkSuid);
+        appendJson(json, "input_file", inputFile);
+        appendJson(json, "start_time", startTime.toString());
+        appendJson(json, "bytes_read", bytesRead);
+        appendJson(json, "nodes", nodeCount);
+        appendJson(json, "edges", edgeCount);
+        appendJson(json, "dropped_edges", droppedEdgeCount);
+        appendJson(json, "edges_without_probabilities", edgesWithoutProbabilities);
+        for (Map.Entry<ImportStage, Long> entry : stageMillis.entrySet()) {
+            appendJson(json, getStageKey(entry.getKey()), entry.getValue());
+        }
+        appendJson(json, "total_ms", totalMillis);
+        json.append("  \"").append(peakHeapKey).append("\": ").append(peakHeapBytes).append("\n}\n");
+
+        return json.toString();
+    }
+
+    private static void appendJson(StringBuilder json, String name, Object value) {
+        json.append("  \"").append(name).append("\": ");
+        if (value instanceof Number) {
+            json.append(value);
+        } else if (value == null) {
+            json.append("null");
+        } else {
+            json.append('"').append(value.toString().replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        json.append(",\n");
+    }
+
+    private static String getStageKey(ImportStage stage) {
+        return stage.name().toLowerCase(Locale.ROOT) + "_ms";
+    }
+
+    public Long getNetworkSuid() {
+        return networkSuid;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    public int getDroppedEdgeCount() {
+        return droppedEdgeCount;
+    }
+
+    public int getEdgesWithoutProbabilities() {
+        return edgesWithoutProbabilities;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        summary.append("Imported ").append(inputFile)
+                .append(": ").append(bytesRead).append(" bytes, ")
+                .append(nodeCount).append(" nodes, ")
+                .append(edgeCount).append(" edges (")
+                .append(droppedEdgeCount).append(" dropped, ")
+                .append(edgesWithoutProbabilities).append(" without probabilities), ");
+        for (Map.Entry<ImportStage, Long> entry : stageMillis.entrySet()) {
+            summary.append(getStageKey(entry.getKey())).append('=').append(entry.getValue()).append(", ");
+        }
+        summary.append("total_ms=").append(totalMillis)
+                .append(", ").append(peakHeapKey).append('=').append(peakHeapBytes);
+
+        return summary.toString();
+    }
+
+}
@@ -0,0 +1,78 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.work.Tunable;
+
+/**
+ * Options shared by the Tetrad import tasks, shown in the import dialog.
+ *
+ */
+public class ImportOptions {
+
+    @Tunable(description = "Use the node positions saved by Tetrad (otherwise the nodes are placed on a grid)", gravity = 1.0)
+    public boolean useTetradLayout = true;
+
+    @Tunable(description = "Add a numeric edge column per edge type probability", gravity = 2.0)
+    public boolean probabilityColumns = true;
+
+    @Tunable(description = "Add CCD annotations (__CCD_Annotation_Set)", gravity = 3.0)
+    public boolean ccdAnnotations = true;
+
+    @Tunable(description = "Minimum probability of the most likely edge type (0 keeps all edges)", gravity = 4.0)
+    public double minProbability = 0.0;
+
+    @Tunable(description = "Maximum probability of no edge (nil) (1 keeps all edges)", gravity = 5.0)
+    public double maxNilProbability = 1.0;
+
+    @Tunable(description = "Save import metrics as json next to the input file", gravity = 6.0)
+    public boolean writeMetricsFile = false;
+
+    @Tunable(description = "Cache the parsed graph for faster re-imports of the same file", gravity = 7.0)
+    public boolean useGraphCache = true;
+
+    public ImportOptions() {
+    }
+
+    /**
+     * @return the filter for edges generated by bootstrapping
+     */
+    public EdgeProbabilityFilter createEdgeFilter() {
+        return new EdgeProbabilityFilter(minProbability, maxNilProbability);
+    }
+
+    /**
+     * Saves the options that shape the network as "tetrad_import_option_*"
+     * cells of its network table.
+     *
+     * @param myNet the imported network
+     */
+    public void writeTo(CyNetwork myNet) {
+        CyTable myNetTable = myNet.getDefaultNetworkTable();
+        CyRow myRow = myNet.getRow(myNet);
+
+        ImportMetrics.setCell(myNetTable, myRow, "option_use_tetrad_layout", Boolean.class, useTetradLayout);
+        ImportMetrics.setCell(myNetTable, myRow, "option_probability_columns", Boolean.class, probabilityColumns);
+        ImportMetrics.setCell(myNetTable, myRow, "option_ccd_annotations", Boolean.class, ccdAnnotations);
+        ImportMetrics.setCell(myNetTable, myRow, "option_min_probability", Double.class, minProbability);
+        ImportMetrics.setCell(myNetTable, myRow, "option_max_nil_probability", Double.class, maxNilProbability);
+    }
+
+    /**
+     * @param myNet an imported network
+     * @return the options the network was imported with, the defaults for
+     * what it doesn't have
+     */
+    public static ImportOptions readFrom(CyNetwork myNet) {
+        ImportOptions options = new ImportOptions();
+        options.useTetradLayout = ImportMetrics.getCell(myNet, "option_use_tetrad_layout", Boolean.class, options.useTetradLayout);
+        options.probabilityColumns = ImportMetrics.getCell(myNet, "option_probability_columns", Boolean.class, options.probabilityColumns);
+        options.ccdAnnotations = ImportMetrics.getCell(myNet, "option_ccd_annotations", Boolean.class, options.ccdAnnotations);
+        options.minProbability = ImportMetrics.getCell(myNet, "option_min_probability", Double.class, options.minProbability);
+        options.maxNilProbability = ImportMetrics.getCell(myNet, "option_max_nil_probability", Double.class, options.maxNilProbability);
+
+        return options;
+    }
+
+}
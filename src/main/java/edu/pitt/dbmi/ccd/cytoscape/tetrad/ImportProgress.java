@@ -0,0 +1,148 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import org.cytoscape.work.TaskMonitor;
+
+/**
+ * Reports the stages of a Tetrad import to a TaskMonitor, times them, and
+ * lets the long running loops check whether the task was cancelled. The
+ * ImportMetrics of the import travel along with it.
+ *
+ * Loops call update() every CHECK_INTERVAL items, which sets the progress
+ * bar and throws a CancellationException once the task is cancelled. Not
+ * thread safe, every import uses its own instance.
+ *
+ */
+public class ImportProgress {
+
+    // How many nodes, edges or rows to process between two update() calls
+    public static final int CHECK_INTERVAL = 4096;
+
+    private final TaskMonitor monitor;
+    private final BooleanSupplier cancelled;
+
+    private final Map<ImportStage, Long> stageNanos = new EnumMap<>(ImportStage.class);
+
+    private final ImportMetrics metrics = new ImportMetrics();
+
+    private ImportStage currentStage;
+    private long stageStartNanos;
+
+    /**
+     * @param monitor the task monitor, null to only time the stages and
+     * check for cancellation
+     * @param cancelled true once the task was cancelled
+     */
+    public ImportProgress(TaskMonitor monitor, BooleanSupplier cancelled) {
+        this.monitor = monitor;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * @return progress that reports nothing and can't be cancelled
+     */
+    public static ImportProgress none() {
+        return new ImportProgress(null, () -> false);
+    }
+
+    /**
+     * Ends the current stage, if any, and starts the next one.
+     *
+     * @param stage the stage to start
+     */
+    public void startStage(ImportStage stage) {
+        endStage();
+        checkCancelled();
+
+        currentStage = stage;
+        stageStartNanos = System.nanoTime();
+        if (monitor != null) {
+            monitor.setStatusMessage(stage.getDescription() + "...");
+            monitor.setProgress(stage.toOverallProgress(0.0));
+        }
+    }
+
+    /**
+     * Sets the progress within the current stage and checks for cancellation.
+     *
+     * @param done items done so far
+     * @param total total number of items, 0 if not known
+     */
+    public void update(long done, long total) {
+        checkCancelled();
+        if (monitor != null && currentStage != null && total > 0) {
+            monitor.setProgress(currentStage.toOverallProgress((double) done / total));
+        }
+    }
+
+    /**
+     * @throws CancellationException if the task was cancelled
+     */
+    public void checkCancelled() {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("The Tetrad import was cancelled.");
+        }
+    }
+
+    /**
+     * Ends the current stage and records how long it took.
+     */
+    public void endStage() {
+        if (currentStage != null) {
+            stageNanos.merge(currentStage, System.nanoTime() - stageStartNanos, Long::sum);
+            if (monitor != null) {
+                monitor.setProgress(currentStage.toOverallProgress(1.0));
+            }
+            currentStage = null;
+        }
+    }
+
+    /**
+     * Ends the current stage and completes the metrics of the import.
+     *
+     * @param tetradGraph the graph that was imported
+     * @return the metrics
+     */
+    public ImportMetrics finish(TetradGraphData tetradGraph) {
+        endStage();
+        metrics.recordGraph(tetradGraph);
+        metrics.finish(this);
+
+        return metrics;
+    }
+
+    public ImportMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean hasStage(ImportStage stage) {
+        return stageNanos.containsKey(stage);
+    }
+
+    /**
+     * @param stage an import stage
+     * @return milliseconds spent in the stage, 0 if it didn't run
+     */
+    public long getStageMillis(ImportStage stage) {
+        return stageNanos.getOrDefault(stage, 0L) / 1000000L;
+    }
+
+    /**
+     * @return the time spent per stage, e.g. "Creating nodes: 12 ms, ..."
+     */
+    public String getTimings() {
+        StringBuilder timings = new StringBuilder();
+        for (Map.Entry<ImportStage, Long> entry : stageNanos.entrySet()) {
+            if (timings.length() > 0) {
+                timings.append(", ");
+            }
+            timings.append(entry.getKey().getDescription()).append(": ").append(entry.getValue() / 1000000L).append(" ms");
+        }
+
+        return timings.toString();
+    }
+
+}
@@ -0,0 +1,40 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+/**
+ * The measured stages of a Tetrad import, with the part of the overall
+ * progress bar each one takes up.
+ *
+ */
+public enum ImportStage {
+
+    READ("Reading and parsing the Tetrad json file", 0.0, 0.40),
+    CONVERT("Converting the Tetrad graph", 0.40, 0.45),
+    NODES("Creating nodes", 0.45, 0.50),
+    EDGES("Creating edges", 0.50, 0.65),
+    ANNOTATIONS("Filling the node and edge tables", 0.65, 0.85),
+    VIEW("Creating the network view", 0.85, 0.95),
+    STYLE("Applying the Tetrad style", 0.95, 1.0);
+
+    private final String description;
+    private final double progressStart;
+    private final double progressEnd;
+
+    ImportStage(String description, double progressStart, double progressEnd) {
+        this.description = description;
+        this.progressStart = progressStart;
+        this.progressEnd = progressEnd;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @param stageProgress progress within this stage, 0.0 to 1.0
+     * @return the overall import progress
+     */
+    public double toOverallProgress(double stageProgress) {
+        return progressStart + (progressEnd - progressStart) * Math.min(1.0, Math.max(0.0, stageProgress));
+    }
+
+}
@@ -1,8 +1,12 @@
 package edu.pitt.dbmi.ccd.cytoscape.tetrad;
 
 import java.awt.event.ActionEvent;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import javax.swing.*;
-import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.filechooser.FileFilter;
 import org.cytoscape.application.swing.AbstractCyAction;
 import org.cytoscape.application.swing.CySwingApplication;
 import org.cytoscape.application.swing.CytoPanel;
@@ -37,17 +41,63 @@ public class ImportTetradFileAction extends AbstractCyAction {
 
         JFileChooser chooser = new JFileChooser();
 
-        FileNameExtensionFilter filter = new FileNameExtensionFilter("Tetrad Output File (.json)", "json");
-        chooser.setFileFilter(filter);
+        // The same test as for the files of a directory, so e.g. data.csv.gz is not offered
+        chooser.setFileFilter(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isDirectory() || TetradGraphFiles.isTetradGraphFile(file.getName());
+            }
+
+            @Override
+            public String getDescription() {
+                return "Tetrad Output File (.json, .json.gz, .tgb)";
+            }
+        });
+
+        // Several files and whole directories of Tetrad output can be imported at once
+        chooser.setMultiSelectionEnabled(true);
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
 
         int returnVal = chooser.showOpenDialog(cytoPanelWest.getComponentAt(0));
-        if (returnVal == JFileChooser.APPROVE_OPTION) {
-            System.out.println("You chose to open this file: " + chooser.getSelectedFile().getName());
+        if (returnVal != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        List<File> inputFiles = collectInputFiles(chooser.getSelectedFiles());
+        if (inputFiles.isEmpty()) {
+            JOptionPane.showMessageDialog(cytoPanelWest.getComponentAt(0), "No Tetrad graph files were found in the selection.");
+            return;
         }
 
-        createNetworkTaskFactory.setInputFileName(chooser.getSelectedFile().getAbsolutePath());
+        dialogTaskManager.execute(createNetworkTaskFactory.createTaskIterator(inputFiles));
+    }
+
+    /**
+     * Expands the selected directories into the Tetrad graph files they contain.
+     *
+     * @param selectedFiles files and directories chosen by the user
+     * @return the files to import
+     */
+    private List<File> collectInputFiles(File[] selectedFiles) {
+        List<File> inputFiles = new ArrayList<>();
+
+        for (File selectedFile : selectedFiles) {
+            if (selectedFile.isDirectory()) {
+                File[] files = selectedFile.listFiles((dir, name) -> TetradGraphFiles.isTetradGraphFile(name));
+                if (files != null) {
+                    Arrays.sort(files);
+                    for (File file : files) {
+                        if (file.isFile()) {
+                            inputFiles.add(file);
+                        }
+                    }
+                }
+            } else if (selectedFile.isFile()) {
+                inputFiles.add(selectedFile);
+            }
+        }
 
-        dialogTaskManager.execute(createNetworkTaskFactory.createTaskIterator());
+        return inputFiles;
     }
 
 }
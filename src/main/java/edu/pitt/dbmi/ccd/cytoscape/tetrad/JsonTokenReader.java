@@ -0,0 +1,388 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal pull-style JSON tokenizer.
+ *
+ * Values are read on demand straight from the underlying stream, so whatever
+ * the caller is not interested in can be skipped without ever being turned
+ * into objects. Only one small character buffer is held at any time.
+ *
+ */
+public class JsonTokenReader implements Closeable {
+
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader in;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private int pos = 0;
+
+    private int limit = 0;
+
+    // Number of chars consumed before the current buffer, used for error messages
+    private long offset = 0;
+
+    // Reused for strings and numbers to avoid a new builder per value
+    private final StringBuilder scratch = new StringBuilder();
+
+    // Keys and the values read with nextInternedString()
+    private final StringInterner names = new StringInterner();
+
+    public JsonTokenReader(InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public JsonTokenReader(Reader in) {
+        this.in = in;
+    }
+
+    public Token peek() throws IOException {
+        int c = peekChar();
+        switch (c) {
+            case -1:
+                return Token.END_DOCUMENT;
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '}':
+                return Token.END_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case ']':
+                return Token.END_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                return Token.BOOLEAN;
+            case 'n':
+                return Token.NULL;
+            default:
+                return Token.NUMBER;
+        }
+    }
+
+    public void beginObject() throws IOException {
+        expect('{');
+    }
+
+    public void endObject() throws IOException {
+        skipSeparator();
+        expect('}');
+    }
+
+    public void beginArray() throws IOException {
+        expect('[');
+    }
+
+    public void endArray() throws IOException {
+        skipSeparator();
+        expect(']');
+    }
+
+    /**
+     * Whether the current object or array has another member. Consumes the
+     * separating comma, if any.
+     *
+     * @return false when the next token closes the current object or array
+     * @throws IOException
+     */
+    public boolean hasNext() throws IOException {
+        skipSeparator();
+        int c = peekChar();
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    /**
+     * Object keys are few and repeated in every object, so they come from the
+     * string pool.
+     */
+    public String nextName() throws IOException {
+        readString();
+        expect(':');
+        return names.intern(scratch);
+    }
+
+    public String nextString() throws IOException {
+        readString();
+        return scratch.toString();
+    }
+
+    /**
+     * Like nextString(), for values that repeat throughout the file, e.g.
+     * node names: every occurrence is the same String instance and only the
+     * first one is allocated.
+     */
+    public String nextInternedString() throws IOException {
+        readString();
+        return names.intern(scratch);
+    }
+
+    public double nextDouble() throws IOException {
+        return Double.parseDouble(readNumber());
+    }
+
+    public int nextInt() throws IOException {
+        String number = readNumber();
+        try {
+            return Integer.parseInt(number);
+        } catch (NumberFormatException e) {
+            return (int) Double.parseDouble(number);
+        }
+    }
+
+    public boolean nextBoolean() throws IOException {
+        int c = peekChar();
+        if (c == 't') {
+            expectLiteral("true");
+            return true;
+        } else if (c == 'f') {
+            expectLiteral("false");
+            return false;
+        }
+        throw syntaxError("Expected a boolean");
+    }
+
+    public void nextNull() throws IOException {
+        expectLiteral("null");
+    }
+
+    /**
+     * Skips the next value, including nested objects and arrays, without
+     * allocating anything for it.
+     *
+     * @throws IOException
+     */
+    public void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            int c = peekChar();
+            switch (c) {
+                case '{':
+                case '[':
+                    pos++;
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    pos++;
+                    depth--;
+                    break;
+                case '"':
+                    pos++;
+                    skipString();
+                    // A string followed by ':' is a member name, the value comes next
+                    if (peekChar() == ':') {
+                        pos++;
+                        continue;
+                    }
+                    break;
+                case ',':
+                    pos++;
+                    continue;
+                case -1:
+                    throw syntaxError("Unexpected end of document");
+                default:
+                    skipLiteral();
+                    break;
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * @return number of characters consumed so far
+     */
+    public long getPosition() {
+        return offset + pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads the next string into scratch.
+     */
+    private void readString() throws IOException {
+        expect('"');
+        scratch.setLength(0);
+        while (true) {
+            if (pos == limit && !fill()) {
+                throw syntaxError("Unterminated string");
+            }
+            char c = buffer[pos++];
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                scratch.append(readEscape());
+            } else {
+                scratch.append(c);
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                throw syntaxError("Unterminated string");
+            }
+            char c = buffer[pos++];
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                if (pos == limit && !fill()) {
+                    throw syntaxError("Unterminated escape sequence");
+                }
+                // The escaped char itself can never close the string
+                pos++;
+            }
+        }
+    }
+
+    private void skipLiteral() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return;
+            }
+            if (isDelimiter(buffer[pos])) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private String readNumber() throws IOException {
+        peekChar();
+        scratch.setLength(0);
+        while (true) {
+            if (pos == limit && !fill()) {
+                break;
+            }
+            char c = buffer[pos];
+            if (isDelimiter(c)) {
+                break;
+            }
+            scratch.append(c);
+            pos++;
+        }
+        if (scratch.length() == 0) {
+            throw syntaxError("Expected a number");
+        }
+        return scratch.toString();
+    }
+
+    private char readEscape() throws IOException {
+        if (pos == limit && !fill()) {
+            throw syntaxError("Unterminated escape sequence");
+        }
+        char c = buffer[pos++];
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    if (pos == limit && !fill()) {
+                        throw syntaxError("Unterminated escape sequence");
+                    }
+                    int digit = Character.digit(buffer[pos++], 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                // '"', '\\', '/' and anything else stand for themselves
+                return c;
+        }
+    }
+
+    private void expectLiteral(String literal) throws IOException {
+        peekChar();
+        for (int i = 0; i < literal.length(); i++) {
+            if (pos == limit && !fill()) {
+                throw syntaxError("Expected " + literal);
+            }
+            if (buffer[pos++] != literal.charAt(i)) {
+                throw syntaxError("Expected " + literal);
+            }
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = peekChar();
+        if (c != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        pos++;
+    }
+
+    private void skipSeparator() throws IOException {
+        if (peekChar() == ',') {
+            pos++;
+        }
+    }
+
+    /**
+     * Skips whitespace and returns the next char without consuming it.
+     *
+     * @return the next char or -1 at the end of the stream
+     * @throws IOException
+     */
+    private int peekChar() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[pos];
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                pos++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        pos = 0;
+        limit = 0;
+        int count = in.read(buffer, 0, buffer.length);
+        if (count <= 0) {
+            return false;
+        }
+        limit = count;
+        return true;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == ',' || c == '}' || c == ']' || c == ':'
+                || c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at offset " + (offset + pos) + " of the JSON document.");
+    }
+
+}
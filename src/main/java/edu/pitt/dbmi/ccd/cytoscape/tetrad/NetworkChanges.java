@@ -0,0 +1,73 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.cytoscape.model.CyNode;
+
+/**
+ * What refreshing an existing network from a Tetrad graph changed.
+ *
+ */
+public class NetworkChanges {
+
+    private final List<CyNode> addedNodes = new ArrayList<>();
+    private int removedNodeCount = 0;
+    private int addedEdgeCount = 0;
+    private int removedEdgeCount = 0;
+    private int updatedEdgeCount = 0;
+
+    public NetworkChanges() {
+    }
+
+    public void addNode(CyNode node) {
+        addedNodes.add(node);
+    }
+
+    public void removeNodes(int count) {
+        removedNodeCount += count;
+    }
+
+    public void addEdge() {
+        addedEdgeCount++;
+    }
+
+    public void removeEdges(int count) {
+        removedEdgeCount += count;
+    }
+
+    public void updateEdge() {
+        updatedEdgeCount++;
+    }
+
+    public List<CyNode> getAddedNodes() {
+        return addedNodes;
+    }
+
+    public int getRemovedNodeCount() {
+        return removedNodeCount;
+    }
+
+    public int getAddedEdgeCount() {
+        return addedEdgeCount;
+    }
+
+    public int getRemovedEdgeCount() {
+        return removedEdgeCount;
+    }
+
+    public int getUpdatedEdgeCount() {
+        return updatedEdgeCount;
+    }
+
+    public boolean isEmpty() {
+        return addedNodes.isEmpty() && removedNodeCount == 0
+                && addedEdgeCount == 0 && removedEdgeCount == 0 && updatedEdgeCount == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Nodes: " + addedNodes.size() + " added, " + removedNodeCount + " removed. "
+                + "Edges: " + addedEdgeCount + " added, " + removedEdgeCount + " removed, " + updatedEdgeCount + " updated.";
+    }
+
+}
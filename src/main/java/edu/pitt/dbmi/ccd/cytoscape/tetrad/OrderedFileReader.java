@@ -0,0 +1,138 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import org.cytoscape.work.TaskMonitor;
+
+/**
+ * Reads many files on a bounded pool of worker threads and hands the results
+ * over one at a time, in the order the files were given.
+ *
+ * The workers only run a few files ahead of the caller, so only a few read
+ * results are held in memory at any time. Files that can't be read are
+ * reported and skipped, a cancelled task stops the workers and the wait
+ * with a CancellationException.
+ *
+ * @param <T> what is read from a file
+ */
+public class OrderedFileReader<T> {
+
+    // How long to wait for a file before checking for cancellation again
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * Reads one file, on a worker thread.
+     *
+     * @param <T> what is read from the file
+     */
+    @FunctionalInterface
+    public interface Reader<T> {
+
+        T read(int index, File file) throws Exception;
+
+    }
+
+    /**
+     * Uses what was read from one file, on the calling thread.
+     *
+     * @param <T> what was read from the file
+     */
+    @FunctionalInterface
+    public interface Handler<T> {
+
+        void handle(int index, File file, T result);
+
+    }
+
+    private final List<File> inputFiles;
+    private final BooleanSupplier cancelled;
+    private final int threadCount;
+
+    /**
+     * @param inputFiles the files, in the order their results are handled
+     * @param cancelled true once the task was cancelled
+     */
+    public OrderedFileReader(List<File> inputFiles, BooleanSupplier cancelled) {
+        this.inputFiles = inputFiles;
+        this.cancelled = cancelled;
+        this.threadCount = Math.max(1, Math.min(inputFiles.size(), Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Reads all the files and handles their results in order.
+     *
+     * @param reader reads a file on a worker thread
+     * @param handler handles the result of a file on the calling thread
+     * @param monitor shows a warning for every file that could not be read
+     * @return the names of the files that could not be read
+     * @throws CancellationException if the task was cancelled
+     * @throws InterruptedException if the calling thread was interrupted
+     */
+    public List<String> readAll(Reader<T> reader, Handler<T> handler, TaskMonitor monitor) throws InterruptedException {
+        // Results waiting for the handler are bounded by this window
+        final int window = threadCount * 2;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        List<Future<T>> futures = new ArrayList<>(inputFiles.size());
+        List<String> failedFiles = new ArrayList<>();
+        try {
+            for (int i = 0; i < inputFiles.size(); i++) {
+                // Keep the workers busy a few files ahead of the handler
+                while (futures.size() < inputFiles.size() && futures.size() <= i + window) {
+                    final int index = futures.size();
+                    final File file = inputFiles.get(index);
+                    futures.add(executor.submit(() -> reader.read(index, file)));
+                }
+
+                File file = inputFiles.get(i);
+                T result;
+                try {
+                    result = await(futures.get(i));
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CancellationException) {
+                        // The worker saw the cancel first, nothing failed
+                        throw (CancellationException) e.getCause();
+                    }
+
+                    failedFiles.add(file.getName());
+                    monitor.showMessage(TaskMonitor.Level.WARN, "Could not read " + file.getName() + ": " + e.getCause().getMessage());
+                    continue;
+                } finally {
+                    // Let go of the result as soon as it has been used
+                    futures.set(i, null);
+                }
+
+                handler.handle(i, file, result);
+            }
+        } finally {
+            // Interrupts the workers still reading after a cancel or a failure
+            executor.shutdownNow();
+        }
+
+        return failedFiles;
+    }
+
+    private T await(Future<T> future) throws ExecutionException, InterruptedException {
+        while (true) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("The Tetrad import was cancelled.");
+            }
+
+            try {
+                return future.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Still reading, check for cancellation again
+            }
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+/**
+ * A string pool for the few distinct strings a Tetrad json file repeats
+ * over and over: object keys, node names and edge type names.
+ *
+ * The chars are looked up as they are, so a string that is already in the
+ * pool costs no allocation, and every occurrence of a node name is the same
+ * String instance. Not thread safe, every reader uses its own pool.
+ *
+ */
+public class StringInterner {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    // Open addressing, the capacity is always a power of two
+    private String[] strings = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    /**
+     * @param chars the chars of the string
+     * @return the pooled string with these chars
+     */
+    public String intern(CharSequence chars) {
+        int hash = hash(chars);
+        int mask = strings.length - 1;
+        int slot = hash & mask;
+        while (strings[slot] != null) {
+            if (hashes[slot] == hash && contentEquals(strings[slot], chars)) {
+                return strings[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        String string = chars.toString();
+        strings[slot] = string;
+        hashes[slot] = hash;
+        if (++size * 2 > strings.length) {
+            grow();
+        }
+
+        return string;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        String[] oldStrings = strings;
+        int[] oldHashes = hashes;
+        strings = new String[oldStrings.length * 2];
+        hashes = new int[oldStrings.length * 2];
+
+        int mask = strings.length - 1;
+        for (int i = 0; i < oldStrings.length; i++) {
+            if (oldStrings[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (strings[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                strings[slot] = oldStrings[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    private static int hash(CharSequence chars) {
+        // Same as String.hashCode, spread so that similar names ("X1", "X2", ...) don't cluster
+        int hash = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean contentEquals(String string, CharSequence chars) {
+        if (string.length() != chars.length()) {
+            return false;
+        }
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) != chars.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
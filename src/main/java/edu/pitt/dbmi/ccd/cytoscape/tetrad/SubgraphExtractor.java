@@ -0,0 +1,210 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.Arrays;
+
+/**
+ * Picks a part of a parsed Tetrad graph before any Cytoscape objects are
+ * made: the neighborhood of some nodes, the most probable edges or the
+ * largest connected components.
+ *
+ * Parts are node and edge masks indexed like the graph, so the steps can be
+ * chained and subgraph() copies out the result.
+ *
+ */
+public class SubgraphExtractor {
+
+    private SubgraphExtractor() {
+    }
+
+    /**
+     * @param adjacency the adjacency index of the graph
+     * @param seeds node indexes to start from
+     * @param hops how many edges away from a seed a node may be
+     * @param keptEdges the edges that may be followed
+     * @return the nodes at most hops edges away from a seed
+     */
+    public static boolean[] neighborhood(GraphAdjacency adjacency, int[] seeds, int hops, boolean[] keptEdges) {
+        boolean[] keptNodes = new boolean[adjacency.getNodeCount()];
+        int[] frontier = new int[adjacency.getNodeCount()];
+        int frontierSize = 0;
+        for (int seed : seeds) {
+            if (!keptNodes[seed]) {
+                keptNodes[seed] = true;
+                frontier[frontierSize++] = seed;
+            }
+        }
+
+        // Breadth first, one hop at a time
+        int[] nextFrontier = new int[adjacency.getNodeCount()];
+        for (int hop = 0; hop < hops && frontierSize > 0; hop++) {
+            int nextFrontierSize = 0;
+            for (int i = 0; i < frontierSize; i++) {
+                int node = frontier[i];
+                for (int j = 0; j < adjacency.getDegree(node); j++) {
+                    int edge = adjacency.getEdge(node, j);
+                    int opposite = adjacency.getOpposite(node, edge);
+                    if (keptEdges[edge] && !keptNodes[opposite]) {
+                        keptNodes[opposite] = true;
+                        nextFrontier[nextFrontierSize++] = opposite;
+                    }
+                }
+            }
+
+            int[] swap = frontier;
+            frontier = nextFrontier;
+            nextFrontier = swap;
+            frontierSize = nextFrontierSize;
+        }
+
+        return keptNodes;
+    }
+
+    /**
+     * Keeps the edges with the highest max non-nil probability. Edges
+     * without probabilities rank last, ties go to the edge that came first.
+     *
+     * @param edges the edges of the graph
+     * @param count how many edges to keep
+     * @param keptEdges the edges to choose from, updated in place
+     * @return keptEdges
+     */
+    public static boolean[] topEdges(EdgeStore edges, int count, boolean[] keptEdges) {
+        double[] ranks = new double[edges.size()];
+        int candidates = 0;
+        for (int i = 0; i < edges.size(); i++) {
+            if (keptEdges[i]) {
+                ranks[candidates++] = getMaxProbability(edges, i);
+            }
+        }
+        if (candidates <= count) {
+            return keptEdges;
+        }
+
+        // The rank of the count-th best edge, edges above it are all kept
+        double[] sortedRanks = Arrays.copyOf(ranks, candidates);
+        Arrays.sort(sortedRanks);
+        double threshold = sortedRanks[candidates - count];
+        int aboveThreshold = candidates - count;
+        while (aboveThreshold < candidates && sortedRanks[aboveThreshold] == threshold) {
+            aboveThreshold++;
+        }
+        int atThreshold = count - (candidates - aboveThreshold);
+
+        for (int i = 0; i < edges.size(); i++) {
+            if (keptEdges[i]) {
+                double rank = getMaxProbability(edges, i);
+                if (rank < threshold || (rank == threshold && atThreshold-- <= 0)) {
+                    keptEdges[i] = false;
+                }
+            }
+        }
+
+        return keptEdges;
+    }
+
+    /**
+     * @param adjacency the adjacency index of the graph
+     * @param count how many components to keep
+     * @param keptNodes the nodes to choose from
+     * @param keptEdges the edges that connect them
+     * @return the nodes of the count largest components, ties go to the
+     * component whose first node came first
+     */
+    public static boolean[] largestComponents(GraphAdjacency adjacency, int count, boolean[] keptNodes, boolean[] keptEdges) {
+        int nodeCount = adjacency.getNodeCount();
+        int[] components = new int[nodeCount];
+        Arrays.fill(components, -1);
+        int[] componentSizes = new int[nodeCount];
+        int componentCount = 0;
+
+        int[] stack = new int[nodeCount];
+        for (int start = 0; start < nodeCount; start++) {
+            if (!keptNodes[start] || components[start] >= 0) {
+                continue;
+            }
+
+            int component = componentCount++;
+            int stackSize = 0;
+            components[start] = component;
+            stack[stackSize++] = start;
+            while (stackSize > 0) {
+                int node = stack[--stackSize];
+                componentSizes[component]++;
+                for (int j = 0; j < adjacency.getDegree(node); j++) {
+                    int edge = adjacency.getEdge(node, j);
+                    int opposite = adjacency.getOpposite(node, edge);
+                    if (keptEdges[edge] && keptNodes[opposite] && components[opposite] < 0) {
+                        components[opposite] = component;
+                        stack[stackSize++] = opposite;
+                    }
+                }
+            }
+        }
+
+        // Size in the high int and the inverted component number in the low int, so one sort ranks both
+        long[] ranks = new long[componentCount];
+        for (int component = 0; component < componentCount; component++) {
+            ranks[component] = ((long) componentSizes[component] << 32) | (Integer.MAX_VALUE - component);
+        }
+        Arrays.sort(ranks);
+
+        boolean[] keptComponents = new boolean[componentCount];
+        for (int i = 0; i < Math.min(count, componentCount); i++) {
+            keptComponents[Integer.MAX_VALUE - (int) ranks[componentCount - 1 - i]] = true;
+        }
+
+        boolean[] largest = new boolean[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            largest[node] = components[node] >= 0 && keptComponents[components[node]];
+        }
+
+        return largest;
+    }
+
+    /**
+     * @param tetradGraph the graph
+     * @param keptNodes the nodes to copy
+     * @param keptEdges the edges to copy, if both their nodes are kept
+     * @return a graph with only the kept nodes and edges, in their order
+     */
+    public static TetradGraphData subgraph(TetradGraphData tetradGraph, boolean[] keptNodes, boolean[] keptEdges) {
+        TetradGraphData subgraph = new TetradGraphData();
+        subgraph.addDroppedEdges(tetradGraph.getDroppedEdgeCount());
+
+        int[] nodes = new int[tetradGraph.getNodeCount()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = keptNodes[i] ? subgraph.addNode(tetradGraph.getNodeName(i), tetradGraph.getCenterX(i), tetradGraph.getCenterY(i)) : -1;
+        }
+
+        EdgeStore edges = tetradGraph.getEdges();
+        EdgeStore subgraphEdges = subgraph.getEdges();
+        for (int i = 0; i < edges.size(); i++) {
+            int source = nodes[edges.getSource(i)];
+            int target = nodes[edges.getTarget(i)];
+            if (!keptEdges[i] || source < 0 || target < 0) {
+                continue;
+            }
+
+            int edge = subgraphEdges.addEdge(source, target, edges.getEndpoint1(i), edges.getEndpoint2(i));
+            for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                double probability = edges.getProbability(i, edgeType);
+                if (!Double.isNaN(probability)) {
+                    subgraphEdges.setProbability(edge, edgeType, probability);
+                }
+            }
+        }
+        subgraphEdges.trimToSize();
+
+        return subgraph;
+    }
+
+    /**
+     * @return the probability of the most likely non-nil edge type, -1 if
+     * the edge has none
+     */
+    private static double getMaxProbability(EdgeStore edges, int edge) {
+        int maxEdgeType = edges.getMaxEdgeType(edge);
+        return (maxEdgeType < 0) ? -1.0 : edges.getProbability(edge, maxEdgeType);
+    }
+
+}
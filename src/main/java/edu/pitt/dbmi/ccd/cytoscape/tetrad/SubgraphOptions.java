@@ -0,0 +1,155 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.work.Tunable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Level of detail options of the import: only import a part of a large
+ * graph. The parts narrow down in this order: the most probable edges, the
+ * neighborhood of the seed variables, the largest connected components.
+ *
+ */
+public class SubgraphOptions {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubgraphOptions.class);
+
+    @Tunable(description = "Only the N edges with the highest probability (0 keeps all)", gravity = 20.0)
+    public int topEdges = 0;
+
+    @Tunable(description = "Only the neighborhood of these variables (comma separated, empty for all)", gravity = 21.0)
+    public String seedNodes = "";
+
+    @Tunable(description = "Size of the neighborhood (hops)", gravity = 22.0)
+    public int hops = 1;
+
+    @Tunable(description = "Only the N largest connected components (0 keeps all)", gravity = 23.0)
+    public int largestComponents = 0;
+
+    public SubgraphOptions() {
+    }
+
+    public boolean isEnabled() {
+        return topEdges > 0 || !getSeedNodeNames().isEmpty() || largestComponents > 0;
+    }
+
+    public List<String> getSeedNodeNames() {
+        List<String> names = new ArrayList<>();
+        if (seedNodes != null) {
+            for (String name : seedNodes.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    names.add(name.trim());
+                }
+            }
+        }
+
+        return names;
+    }
+
+    /**
+     * @param tetradGraph the parsed graph
+     * @return the part of the graph to import, or the graph itself if all
+     * of it is imported
+     */
+    public TetradGraphData extract(TetradGraphData tetradGraph) {
+        if (!isEnabled()) {
+            return tetradGraph;
+        }
+
+        GraphAdjacency adjacency = new GraphAdjacency(tetradGraph);
+        boolean[] keptNodes = new boolean[tetradGraph.getNodeCount()];
+        boolean[] keptEdges = new boolean[tetradGraph.getEdges().size()];
+        Arrays.fill(keptNodes, true);
+        Arrays.fill(keptEdges, true);
+
+        if (topEdges > 0) {
+            SubgraphExtractor.topEdges(tetradGraph.getEdges(), topEdges, keptEdges);
+
+            // Only the nodes of the edges left
+            Arrays.fill(keptNodes, false);
+            EdgeStore edges = tetradGraph.getEdges();
+            for (int i = 0; i < edges.size(); i++) {
+                if (keptEdges[i]) {
+                    keptNodes[edges.getSource(i)] = true;
+                    keptNodes[edges.getTarget(i)] = true;
+                }
+            }
+        }
+
+        List<String> seedNodeNames = getSeedNodeNames();
+        if (!seedNodeNames.isEmpty()) {
+            int[] seeds = getSeeds(tetradGraph, seedNodeNames, keptNodes);
+            boolean[] neighborhood = SubgraphExtractor.neighborhood(adjacency, seeds, Math.max(0, hops), keptEdges);
+            for (int i = 0; i < keptNodes.length; i++) {
+                keptNodes[i] &= neighborhood[i];
+            }
+        }
+
+        if (largestComponents > 0) {
+            keptNodes = SubgraphExtractor.largestComponents(adjacency, largestComponents, keptNodes, keptEdges);
+        }
+
+        return SubgraphExtractor.subgraph(tetradGraph, keptNodes, keptEdges);
+    }
+
+    /**
+     * Saves the options as "tetrad_import_option_*" cells of the network
+     * table.
+     *
+     * @param myNet the imported network
+     */
+    public void writeTo(CyNetwork myNet) {
+        CyTable myNetTable = myNet.getDefaultNetworkTable();
+        CyRow myRow = myNet.getRow(myNet);
+
+        ImportMetrics.setCell(myNetTable, myRow, "option_top_edges", Integer.class, topEdges);
+        ImportMetrics.setCell(myNetTable, myRow, "option_seed_nodes", String.class, seedNodes);
+        ImportMetrics.setCell(myNetTable, myRow, "option_hops", Integer.class, hops);
+        ImportMetrics.setCell(myNetTable, myRow, "option_largest_components", Integer.class, largestComponents);
+    }
+
+    /**
+     * @param myNet an imported network
+     * @return the options the network was imported with, the defaults for
+     * what it doesn't have
+     */
+    public static SubgraphOptions readFrom(CyNetwork myNet) {
+        SubgraphOptions subgraph = new SubgraphOptions();
+        subgraph.topEdges = ImportMetrics.getCell(myNet, "option_top_edges", Integer.class, subgraph.topEdges);
+        subgraph.seedNodes = ImportMetrics.getCell(myNet, "option_seed_nodes", String.class, subgraph.seedNodes);
+        subgraph.hops = ImportMetrics.getCell(myNet, "option_hops", Integer.class, subgraph.hops);
+        subgraph.largestComponents = ImportMetrics.getCell(myNet, "option_largest_components", Integer.class, subgraph.largestComponents);
+
+        return subgraph;
+    }
+
+    private static int[] getSeeds(TetradGraphData tetradGraph, List<String> seedNodeNames, boolean[] keptNodes) {
+        List<String> unknownNames = new ArrayList<>();
+        int[] seeds = new int[seedNodeNames.size()];
+        int seedCount = 0;
+        for (String name : seedNodeNames) {
+            int node = tetradGraph.getNodeIndex(name);
+            if (node >= 0 && keptNodes[node]) {
+                seeds[seedCount++] = node;
+            } else {
+                unknownNames.add(name);
+            }
+        }
+
+        if (seedCount == 0) {
+            throw new IllegalArgumentException("None of the seed variables " + seedNodeNames + " are in the graph.");
+        }
+        if (!unknownNames.isEmpty()) {
+            LOGGER.warn("Seed variables not in the graph: " + unknownNames);
+        }
+
+        return Arrays.copyOf(seeds, seedCount);
+    }
+
+}
@@ -0,0 +1,192 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Compact binary format for a parsed Tetrad graph (".tgb").
+ *
+ * Holds only what the import needs, so reading it costs I/O proportional
+ * to the graph instead of to the Tetrad json text:
+ *
+ * <pre>
+ * "TGB1"                    magic and version
+ * int nodeCount
+ * nodeCount x (UTF name, float centerX, float centerY)    node dictionary, NaN = no location
+ * int edgeCount
+ * boolean hasProbabilities
+ * edgeCount x (int source, int target, byte endpoints)     nodes by dictionary index, endpoint1 in the high nibble
+ * edgeCount x (byte mask, float per bit set)                only if hasProbabilities, bit n = EdgeType ordinal n
+ * </pre>
+ *
+ * Probabilities are kept to float precision, about 7 significant digits.
+ *
+ */
+public class TetradBinaryGraph {
+
+    private static final byte[] MAGIC = {'T', 'G', 'B', '1'};
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private TetradBinaryGraph() {
+    }
+
+    public static void write(TetradGraphData tetradGraph, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(tetradGraph, out);
+        }
+    }
+
+    public static void write(TetradGraphData tetradGraph, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        EdgeStore edges = tetradGraph.getEdges();
+
+        data.write(MAGIC);
+
+        // Node dictionary
+        data.writeInt(tetradGraph.getNodeCount());
+        for (int i = 0; i < tetradGraph.getNodeCount(); i++) {
+            data.writeUTF(tetradGraph.getNodeName(i));
+            data.writeFloat((float) tetradGraph.getCenterX(i));
+            data.writeFloat((float) tetradGraph.getCenterY(i));
+        }
+
+        // Edges by node index
+        boolean hasProbabilities = false;
+        data.writeInt(edges.size());
+        for (int i = 0; i < edges.size(); i++) {
+            hasProbabilities |= edges.hasProbabilities(i);
+        }
+        data.writeBoolean(hasProbabilities);
+        for (int i = 0; i < edges.size(); i++) {
+            data.writeInt(edges.getSource(i));
+            data.writeInt(edges.getTarget(i));
+            data.writeByte((edges.getEndpoint1(i) << 4) | edges.getEndpoint2(i));
+        }
+
+        // Only the probabilities Tetrad gave, as floats
+        if (hasProbabilities) {
+            for (int i = 0; i < edges.size(); i++) {
+                int mask = 0;
+                for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                    if (!Double.isNaN(edges.getProbability(i, edgeType))) {
+                        mask |= 1 << edgeType;
+                    }
+                }
+                data.writeByte(mask);
+                for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                    if ((mask & (1 << edgeType)) != 0) {
+                        data.writeFloat((float) edges.getProbability(i, edgeType));
+                    }
+                }
+            }
+        }
+
+        data.flush();
+    }
+
+    public static TetradGraphData read(Path file, EdgeProbabilityFilter edgeFilter, ImportProgress progress) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in, edgeFilter, progress);
+        }
+    }
+
+    /**
+     * @param in the binary graph
+     * @param edgeFilter drops edges with too low probabilities
+     * @param progress gets the progress every few thousand nodes or edges,
+     * and may cancel the read
+     * @return the graph
+     * @throws IOException
+     */
+    public static TetradGraphData read(InputStream in, EdgeProbabilityFilter edgeFilter, ImportProgress progress) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a Tetrad binary graph file.");
+        }
+
+        TetradGraphData tetradGraph = new TetradGraphData();
+
+        int nodeCount = data.readInt();
+        for (int i = 0; i < nodeCount; i++) {
+            String name = data.readUTF();
+            float centerX = data.readFloat();
+            float centerY = data.readFloat();
+            if (tetradGraph.addNode(name, centerX, centerY) != i) {
+                throw new IOException("Duplicate node " + name + " in the Tetrad binary graph file.");
+            }
+        }
+
+        int edgeCount = data.readInt();
+        boolean hasProbabilities = data.readBoolean();
+
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        byte[] endpoints = new byte[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            sources[i] = data.readInt();
+            targets[i] = data.readInt();
+            endpoints[i] = data.readByte();
+            if (sources[i] < 0 || sources[i] >= nodeCount || targets[i] < 0 || targets[i] >= nodeCount) {
+                throw new IOException("Edge with an unknown node in the Tetrad binary graph file.");
+            }
+            if (i % ImportProgress.CHECK_INTERVAL == 0) {
+                progress.update(i, 2L * edgeCount);
+            }
+        }
+
+        // The probabilities follow all the edges, so the filter is applied while reading them
+        EdgeStore edges = tetradGraph.getEdges();
+        double[] edgeProbabilities = new double[EdgeStore.EDGE_TYPE_COUNT];
+        for (int i = 0; i < edgeCount; i++) {
+            Arrays.fill(edgeProbabilities, Double.NaN);
+            if (hasProbabilities) {
+                int mask = data.readUnsignedByte();
+                for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                    if ((mask & (1 << edgeType)) != 0) {
+                        edgeProbabilities[edgeType] = toDouble(data.readFloat());
+                    }
+                }
+            }
+
+            if (!edgeFilter.accept(edgeProbabilities)) {
+                tetradGraph.addDroppedEdge();
+                continue;
+            }
+
+            int edge = edges.addEdge(sources[i], targets[i], (endpoints[i] >> 4) & 0x0F, endpoints[i] & 0x0F);
+            for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                if (!Double.isNaN(edgeProbabilities[edgeType])) {
+                    edges.setProbability(edge, edgeType, edgeProbabilities[edgeType]);
+                }
+            }
+
+            if (i % ImportProgress.CHECK_INTERVAL == 0) {
+                progress.update(edgeCount + i, 2L * edgeCount);
+            }
+        }
+        edges.trimToSize();
+
+        return tetradGraph;
+    }
+
+    /**
+     * Widens a float by its shortest decimal form, so that e.g. 0.8 comes back
+     * as 0.8 and not as 0.800000011920929.
+     */
+    private static double toDouble(float value) {
+        return Double.parseDouble(Float.toString(value));
+    }
+
+}
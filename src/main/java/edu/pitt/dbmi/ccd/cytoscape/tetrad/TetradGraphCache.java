@@ -0,0 +1,429 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * On-disk cache of parsed Tetrad graphs, so that re-importing a large json
+ * file skips the json parsing altogether.
+ *
+ * Entries are named after the size, modification time and content hash
+ * (CRC32) of the input file. Size and time find the candidate entries without
+ * reading the file, the file is only hashed when there is one, so the hash
+ * still guards against a changed file with the same size and time. On a miss
+ * the hash is computed while the file is parsed. Each entry holds the node and edge arrays in fixed
+ * width sections that are memory-mapped and copied into the arrays in bulk:
+ *
+ * <pre>
+ * "TGC1"                    magic and version
+ * int nodeCount, int edgeCount, boolean hasProbabilities
+ * int[nodeCount] name lengths, then the UTF-8 names
+ * double[nodeCount] centerX, double[nodeCount] centerY     NaN = no location
+ * int[edgeCount] sources, int[edgeCount] targets, byte[edgeCount] endpoints
+ * double[edgeCount * EDGE_TYPE_COUNT] probabilities        only if hasProbabilities
+ * </pre>
+ *
+ * Graphs are cached unfiltered, the EdgeProbabilityFilter is applied when an
+ * entry is loaded. The cache is bounded in size, the least recently used
+ * entries (by file modification time, touched on every hit) are evicted.
+ *
+ */
+public class TetradGraphCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TetradGraphCache.class);
+
+    // Default bound of the cache, -Dtetrad.graphCacheSize=<MB> changes it and 0 turns the cache off
+    public static final long DEFAULT_MAX_SIZE_MB = 2048;
+
+    public static final String CACHE_FILE_EXTENSION = ".tgc";
+
+    private static final byte[] MAGIC = {'T', 'G', 'C', '1'};
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final Path cacheDirectory;
+    private final long maxSizeBytes;
+
+    /**
+     * @param cacheDirectory directory of the cache entries, created when needed
+     * @param maxSizeBytes total size the entries are evicted down to
+     */
+    public TetradGraphCache(Path cacheDirectory, long maxSizeBytes) {
+        this.cacheDirectory = cacheDirectory;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    public Path getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Reads a Tetrad graph file from the cache, or parses it and adds it to
+     * the cache. Binary graph files are already compact and are read
+     * directly.
+     *
+     * @param file the Tetrad graph file
+     * @param edgeFilter drops edges with too low probabilities
+     * @param progress progress and cancellation of the read
+     * @return the graph
+     * @throws IOException
+     */
+    public TetradGraphData read(Path file, EdgeProbabilityFilter edgeFilter, ImportProgress progress) throws IOException {
+        if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(TetradGraphFiles.BINARY_EXTENSION)) {
+            return TetradGraphFiles.read(file, edgeFilter, progress);
+        }
+
+        FileTime lastModified = Files.getLastModifiedTime(file);
+        String fileKey = String.format("%x-%x", Files.size(file), lastModified.toMillis());
+
+        // The content is only hashed if an entry could match
+        String contentHash = null;
+        Path cacheFile = null;
+        if (hasEntries(fileKey)) {
+            contentHash = getContentHash(file, progress);
+            cacheFile = cacheDirectory.resolve(fileKey + '-' + contentHash + CACHE_FILE_EXTENSION);
+        }
+
+        if (cacheFile != null && Files.isRegularFile(cacheFile)) {
+            try {
+                TetradGraphData tetradGraph = load(cacheFile, edgeFilter);
+                touch(cacheFile);
+                LOGGER.info("Read " + file + " from the graph cache " + cacheFile);
+                return tetradGraph;
+            } catch (IOException | RuntimeException e) {
+                // A broken entry of any kind, parse the file again and replace it
+                LOGGER.warn("Dropping the unreadable graph cache entry " + cacheFile, e);
+                Files.deleteIfExists(cacheFile);
+            }
+        }
+
+        // The filter is applied on load, so that the entry serves any thresholds
+        TetradGraphData tetradGraph;
+        if (contentHash == null) {
+            // Hash the file while parsing it, rather than reading it twice
+            CRC32 crc = new CRC32();
+            tetradGraph = TetradGraphFiles.read(file, EdgeProbabilityFilter.ACCEPT_ALL, progress, crc);
+            cacheFile = cacheDirectory.resolve(fileKey + '-' + String.format("%08x", crc.getValue()) + CACHE_FILE_EXTENSION);
+        } else {
+            tetradGraph = TetradGraphFiles.read(file, EdgeProbabilityFilter.ACCEPT_ALL, progress);
+        }
+
+        // Don't cache what was read from a file that changed in the meantime
+        if (lastModified.equals(Files.getLastModifiedTime(file))) {
+            try {
+                store(tetradGraph, cacheFile);
+                evict();
+            } catch (IOException e) {
+                LOGGER.warn("Could not add " + file + " to the graph cache", e);
+            }
+        }
+
+        return edgeFilter.isEnabled() ? filter(tetradGraph, edgeFilter) : tetradGraph;
+    }
+
+    /**
+     * @param fileKey size and modification time of a file
+     * @return true if there is an entry for a file of that size and time
+     */
+    private boolean hasEntries(String fileKey) throws IOException {
+        if (!Files.isDirectory(cacheDirectory)) {
+            return false;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDirectory, fileKey + "-*" + CACHE_FILE_EXTENSION)) {
+            return stream.iterator().hasNext();
+        }
+    }
+
+    /**
+     * @return the CRC32 of the file content
+     */
+    private static String getContentHash(Path file, ImportProgress progress) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+
+                // Hashing a large file takes a moment too
+                progress.checkCancelled();
+            }
+        }
+
+        return String.format("%08x", crc.getValue());
+    }
+
+    private void store(TetradGraphData tetradGraph, Path cacheFile) throws IOException {
+        Files.createDirectories(cacheDirectory);
+
+        // Written next to the entry and moved in place, so readers never see a partial entry
+        Path tempFile = Files.createTempFile(cacheDirectory, "entry-", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                write(tetradGraph, out);
+            }
+            try {
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static void write(TetradGraphData tetradGraph, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        EdgeStore edges = tetradGraph.getEdges();
+        int nodeCount = tetradGraph.getNodeCount();
+        int edgeCount = edges.size();
+
+        boolean hasProbabilities = false;
+        for (int i = 0; i < edgeCount && !hasProbabilities; i++) {
+            hasProbabilities = edges.hasProbabilities(i);
+        }
+
+        data.write(MAGIC);
+        data.writeInt(nodeCount);
+        data.writeInt(edgeCount);
+        data.writeBoolean(hasProbabilities);
+
+        byte[][] names = new byte[nodeCount][];
+        for (int i = 0; i < nodeCount; i++) {
+            names[i] = tetradGraph.getNodeName(i).getBytes(StandardCharsets.UTF_8);
+            data.writeInt(names[i].length);
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            data.write(names[i]);
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            data.writeDouble(tetradGraph.getCenterX(i));
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            data.writeDouble(tetradGraph.getCenterY(i));
+        }
+
+        for (int i = 0; i < edgeCount; i++) {
+            data.writeInt(edges.getSource(i));
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            data.writeInt(edges.getTarget(i));
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            data.writeByte((edges.getEndpoint1(i) << 4) | edges.getEndpoint2(i));
+        }
+        if (hasProbabilities) {
+            for (int i = 0; i < edgeCount; i++) {
+                for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                    data.writeDouble(edges.getProbability(i, edgeType));
+                }
+            }
+        }
+
+        data.flush();
+    }
+
+    private static TetradGraphData load(Path cacheFile, EdgeProbabilityFilter edgeFilter) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a Tetrad graph cache file.");
+        }
+
+        int nodeCount = buffer.getInt();
+        int edgeCount = buffer.getInt();
+        boolean hasProbabilities = buffer.get() != 0;
+
+        // The sizes of all the sections must add up to the size of the entry
+        long probabilityBytes = hasProbabilities ? 8L * EdgeStore.EDGE_TYPE_COUNT * edgeCount : 0;
+        if (nodeCount < 0 || edgeCount < 0
+                || buffer.remaining() < 20L * nodeCount + 9L * edgeCount + probabilityBytes) {
+            throw new IOException("Truncated Tetrad graph cache file.");
+        }
+
+        // Every section is copied out in bulk
+        int[] nameLengths = new int[nodeCount];
+        buffer.asIntBuffer().get(nameLengths);
+        buffer.position(buffer.position() + 4 * nodeCount);
+
+        long nameBytes = 0;
+        for (int nameLength : nameLengths) {
+            if (nameLength < 0) {
+                throw new IOException("Negative node name length in the Tetrad graph cache file.");
+            }
+            nameBytes += nameLength;
+        }
+        if (buffer.remaining() != nameBytes + 16L * nodeCount + 9L * edgeCount + probabilityBytes) {
+            throw new IOException("The sections of the Tetrad graph cache file don't match its size.");
+        }
+
+        String[] names = new String[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            byte[] name = new byte[nameLengths[i]];
+            buffer.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+        }
+
+        double[] centerXs = new double[nodeCount];
+        buffer.asDoubleBuffer().get(centerXs);
+        buffer.position(buffer.position() + 8 * nodeCount);
+        double[] centerYs = new double[nodeCount];
+        buffer.asDoubleBuffer().get(centerYs);
+        buffer.position(buffer.position() + 8 * nodeCount);
+
+        int[] sources = new int[edgeCount];
+        buffer.asIntBuffer().get(sources);
+        buffer.position(buffer.position() + 4 * edgeCount);
+        int[] targets = new int[edgeCount];
+        buffer.asIntBuffer().get(targets);
+        buffer.position(buffer.position() + 4 * edgeCount);
+        byte[] endpoints = new byte[edgeCount];
+        buffer.get(endpoints);
+
+        double[] probabilities = null;
+        if (hasProbabilities) {
+            probabilities = new double[edgeCount * EdgeStore.EDGE_TYPE_COUNT];
+            buffer.asDoubleBuffer().get(probabilities);
+        }
+
+        for (int i = 0; i < edgeCount; i++) {
+            if (sources[i] < 0 || sources[i] >= nodeCount || targets[i] < 0 || targets[i] >= nodeCount) {
+                throw new IOException("Edge with an unknown node in the Tetrad graph cache file.");
+            }
+        }
+
+        TetradGraphData tetradGraph = new TetradGraphData(new EdgeStore(sources, targets, endpoints, probabilities));
+        for (int i = 0; i < nodeCount; i++) {
+            if (tetradGraph.addNode(names[i], centerXs[i], centerYs[i]) != i) {
+                throw new IOException("Duplicate node " + names[i] + " in the Tetrad graph cache file.");
+            }
+        }
+
+        return edgeFilter.isEnabled() ? filter(tetradGraph, edgeFilter) : tetradGraph;
+    }
+
+    /**
+     * @return a copy of the graph without the edges the filter drops
+     */
+    private static TetradGraphData filter(TetradGraphData tetradGraph, EdgeProbabilityFilter edgeFilter) {
+        TetradGraphData filtered = new TetradGraphData();
+        for (int i = 0; i < tetradGraph.getNodeCount(); i++) {
+            filtered.addNode(tetradGraph.getNodeName(i), tetradGraph.getCenterX(i), tetradGraph.getCenterY(i));
+        }
+
+        EdgeStore edges = tetradGraph.getEdges();
+        EdgeStore filteredEdges = filtered.getEdges();
+        double[] edgeProbabilities = new double[EdgeStore.EDGE_TYPE_COUNT];
+        for (int i = 0; i < edges.size(); i++) {
+            for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                edgeProbabilities[edgeType] = edges.getProbability(i, edgeType);
+            }
+
+            if (!edgeFilter.accept(edgeProbabilities)) {
+                filtered.addDroppedEdge();
+                continue;
+            }
+
+            int edge = filteredEdges.addEdge(edges.getSource(i), edges.getTarget(i), edges.getEndpoint1(i), edges.getEndpoint2(i));
+            for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                if (!Double.isNaN(edgeProbabilities[edgeType])) {
+                    filteredEdges.setProbability(edge, edgeType, edgeProbabilities[edgeType]);
+                }
+            }
+        }
+        filteredEdges.trimToSize();
+
+        return filtered;
+    }
+
+    private static void touch(Path cacheFile) {
+        try {
+            Files.setLastModifiedTime(cacheFile, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Only the eviction order suffers
+            LOGGER.debug("Could not touch " + cacheFile, e);
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits its
+     * bound.
+     */
+    private synchronized void evict() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        long totalSize = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDirectory, "*" + CACHE_FILE_EXTENSION)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+                totalSize += getSize(entry);
+            }
+        }
+
+        if (totalSize <= maxSizeBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparing(TetradGraphCache::getLastUsed));
+        for (Path entry : entries) {
+            if (totalSize <= maxSizeBytes) {
+                break;
+            }
+
+            long size = getSize(entry);
+            try {
+                Files.delete(entry);
+                totalSize -= size;
+                LOGGER.info("Evicted " + entry + " from the graph cache");
+            } catch (IOException e) {
+                // E.g. still mapped on Windows, it goes on the next eviction
+                LOGGER.debug("Could not evict " + entry, e);
+            }
+        }
+    }
+
+    private static long getSize(Path entry) {
+        try {
+            return Files.size(entry);
+        } catch (IOException e) {
+            // Evicted by another import in the meantime
+            return 0;
+        }
+    }
+
+    private static FileTime getLastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Converts Tetrad json files (plain or .json.gz) into the compact
+ * TetradBinaryGraph format, so that they can be imported again without
+ * reading the json text.
+ *
+ * <pre>
+ * java -cp cytoscape-tetrad-app.jar:tetrad-lib.jar edu.pitt.dbmi.ccd.cytoscape.tetrad.TetradGraphConverter graph.json [more.json.gz ...]
+ * </pre>
+ *
+ * Each file is written next to its input with the .tgb extension.
+ *
+ */
+public class TetradGraphConverter {
+
+    private TetradGraphConverter() {
+    }
+
+    /**
+     * @param inputFile a Tetrad json or .json.gz file
+     * @return the .tgb file that was written
+     * @throws IOException
+     */
+    public static Path convert(Path inputFile) throws IOException {
+        TetradGraphData tetradGraph = TetradGraphFiles.read(inputFile, EdgeProbabilityFilter.ACCEPT_ALL, ImportProgress.none());
+
+        Path outputFile = getBinaryFile(inputFile);
+        TetradBinaryGraph.write(tetradGraph, outputFile);
+
+        return outputFile;
+    }
+
+    /**
+     * @param inputFile a Tetrad json or .json.gz file
+     * @return the .tgb file next to it
+     */
+    public static Path getBinaryFile(Path inputFile) {
+        String name = inputFile.getFileName().toString();
+        String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        if (lowerCaseName.endsWith(TetradGraphFiles.GZIP_JSON_EXTENSION)) {
+            name = name.substring(0, name.length() - TetradGraphFiles.GZIP_JSON_EXTENSION.length());
+        } else if (lowerCaseName.endsWith(TetradGraphFiles.JSON_EXTENSION)) {
+            name = name.substring(0, name.length() - TetradGraphFiles.JSON_EXTENSION.length());
+        }
+
+        return inputFile.resolveSibling(name + TetradGraphFiles.BINARY_EXTENSION);
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: TetradGraphConverter <tetrad json or .json.gz file>...");
+            System.exit(1);
+        }
+
+        int failed = 0;
+        for (String arg : args) {
+            Path inputFile = Paths.get(arg);
+            try {
+                long start = System.nanoTime();
+                Path outputFile = convert(inputFile);
+                System.out.println(inputFile + " (" + Files.size(inputFile) + " bytes) -> "
+                        + outputFile + " (" + Files.size(outputFile) + " bytes) in "
+                        + (System.nanoTime() - start) / 1000000L + " ms");
+            } catch (IOException e) {
+                System.err.println("Could not convert " + inputFile + ": " + e.getMessage());
+                failed++;
+            }
+        }
+
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+}
@@ -0,0 +1,143 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The nodes and edges read from a Tetrad generated json file, holding only
+ * what is needed to build the Cytoscape network.
+ *
+ */
+public class TetradGraphData {
+
+    // Node names in the order they were first seen
+    private final List<String> nodeNames = new ArrayList<>();
+
+    private final Map<String, Integer> nodeIndexes = new HashMap<>();
+
+    // Node centerX/centerY as saved by Tetrad, NaN when not known
+    private double[] centerXs = new double[16];
+
+    private double[] centerYs = new double[16];
+
+    private final EdgeStore edges;
+
+    // Edges left out by the EdgeProbabilityFilter
+    private int droppedEdgeCount = 0;
+
+    public TetradGraphData() {
+        this(new EdgeStore());
+    }
+
+    /**
+     * @param edges the edges, with node indexes in the order the nodes will
+     * be added
+     */
+    TetradGraphData(EdgeStore edges) {
+        this.edges = edges;
+    }
+
+    /**
+     * Adds a node unless one with the same name already exists.
+     *
+     * @param name node name
+     * @return the node index
+     */
+    public int addNode(String name) {
+        return addNode(name, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Adds a node unless one with the same name already exists. The location
+     * is only recorded if the node doesn't have one yet.
+     *
+     * @param name node name
+     * @param centerX x location saved by Tetrad or NaN
+     * @param centerY y location saved by Tetrad or NaN
+     * @return the node index
+     */
+    public int addNode(String name, double centerX, double centerY) {
+        Integer index = nodeIndexes.get(name);
+        if (index == null) {
+            index = nodeNames.size();
+            nodeIndexes.put(name, index);
+            nodeNames.add(name);
+
+            if (index == centerXs.length) {
+                centerXs = Arrays.copyOf(centerXs, index * 2);
+                centerYs = Arrays.copyOf(centerYs, index * 2);
+            }
+            centerXs[index] = Double.NaN;
+            centerYs[index] = Double.NaN;
+        }
+
+        if (Double.isNaN(centerXs[index]) && !Double.isNaN(centerX) && !Double.isNaN(centerY)) {
+            centerXs[index] = centerX;
+            centerYs[index] = centerY;
+        }
+
+        return index;
+    }
+
+    public List<String> getNodeNames() {
+        return nodeNames;
+    }
+
+    public String getNodeName(int nodeIndex) {
+        return nodeNames.get(nodeIndex);
+    }
+
+    /**
+     * @param name node name
+     * @return the node index or -1 if there is no such node
+     */
+    public int getNodeIndex(String name) {
+        Integer index = nodeIndexes.get(name);
+        return (index == null) ? -1 : index;
+    }
+
+    public int getNodeCount() {
+        return nodeNames.size();
+    }
+
+    public EdgeStore getEdges() {
+        return edges;
+    }
+
+    public void addDroppedEdge() {
+        droppedEdgeCount++;
+    }
+
+    public void addDroppedEdges(int count) {
+        droppedEdgeCount += count;
+    }
+
+    public int getDroppedEdgeCount() {
+        return droppedEdgeCount;
+    }
+
+    public double getCenterX(int nodeIndex) {
+        return centerXs[nodeIndex];
+    }
+
+    public double getCenterY(int nodeIndex) {
+        return centerYs[nodeIndex];
+    }
+
+    /**
+     * @return true if at least one node has a location saved by Tetrad
+     */
+    public boolean hasNodeLocations() {
+        for (int i = 0; i < nodeNames.size(); i++) {
+            if (!Double.isNaN(centerXs[i])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,127 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The Tetrad graph files the app can import, told apart by file name: Tetrad
+ * json, gzip compressed Tetrad json (decompressed while streaming) and the
+ * compact TetradBinaryGraph format.
+ *
+ */
+public class TetradGraphFiles {
+
+    public static final String JSON_EXTENSION = ".json";
+    public static final String GZIP_JSON_EXTENSION = ".json.gz";
+    public static final String BINARY_EXTENSION = ".tgb";
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private TetradGraphFiles() {
+    }
+
+    /**
+     * @param fileName a file name
+     * @return true if the file is a Tetrad graph the app can import
+     */
+    public static boolean isTetradGraphFile(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(ImportMetrics.FILE_SUFFIX)) {
+            // Metrics saved next to an earlier import
+            return false;
+        }
+
+        return name.endsWith(JSON_EXTENSION) || name.endsWith(GZIP_JSON_EXTENSION) || name.endsWith(BINARY_EXTENSION);
+    }
+
+    /**
+     * Reads a Tetrad graph file of any of the supported formats.
+     *
+     * @param file the file
+     * @param edgeFilter drops edges with too low probabilities
+     * @param progress progress and cancellation of the read
+     * @return the graph
+     * @throws IOException
+     */
+    public static TetradGraphData read(Path file, EdgeProbabilityFilter edgeFilter, ImportProgress progress) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+
+        if (name.endsWith(BINARY_EXTENSION)) {
+            return TetradBinaryGraph.read(file, edgeFilter, progress);
+        }
+
+        if (name.endsWith(GZIP_JSON_EXTENSION)) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file), GZIP_BUFFER_SIZE)) {
+                return new TetradJsonReader(edgeFilter).read(in, getGzipUncompressedSize(file), progress);
+            }
+        }
+
+        return new TetradJsonReader(edgeFilter).read(file, progress);
+    }
+
+    /**
+     * Reads a Tetrad json or gzip compressed json file and computes the
+     * checksum of its bytes on the way, so the file is only read once.
+     *
+     * @param file the file
+     * @param edgeFilter drops edges with too low probabilities
+     * @param progress progress and cancellation of the read
+     * @param checksum gets every byte of the file, as stored on disk
+     * @return the graph
+     * @throws IOException
+     */
+    static TetradGraphData read(Path file, EdgeProbabilityFilter edgeFilter, ImportProgress progress, Checksum checksum) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+
+        try (CheckedInputStream checked = new CheckedInputStream(Files.newInputStream(file), checksum)) {
+            TetradGraphData tetradGraph;
+            if (name.endsWith(GZIP_JSON_EXTENSION)) {
+                // Not closed here, that would close the checked stream before it is drained
+                InputStream in = new GZIPInputStream(checked, GZIP_BUFFER_SIZE);
+                tetradGraph = new TetradJsonReader(edgeFilter).read(in, getGzipUncompressedSize(file), progress);
+            } else {
+                tetradGraph = new TetradJsonReader(edgeFilter).read(checked, Files.size(file), progress);
+            }
+
+            // The parser may stop before the end of the file, the rest counts as well
+            byte[] buffer = new byte[GZIP_BUFFER_SIZE];
+            while (checked.read(buffer) >= 0) {
+                // Only the checksum needs the bytes
+            }
+
+            return tetradGraph;
+        }
+    }
+
+    /**
+     * The uncompressed size from the gzip trailer, only used for progress.
+     *
+     * @return the size or 0 if it isn't known
+     */
+    private static long getGzipUncompressedSize(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long compressedSize = channel.size();
+            if (compressedSize < 4) {
+                return 0;
+            }
+
+            ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(trailer, compressedSize - 4);
+            long size = trailer.getInt(0) & 0xFFFFFFFFL;
+
+            // The trailer only has the size modulo 4 GB
+            return (size < compressedSize) ? 0 : size;
+        }
+    }
+
+}
@@ -0,0 +1,323 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Streaming reader for Tetrad generated json files.
+ *
+ * The json is read token by token and goes straight to node names and edges.
+ * Only "nodes" and "edgesSet" are looked at, everything else ("edgeLists",
+ * "namesHash", triples, node categories, etc.) is skipped without being
+ * parsed. Edge endpoints are resolved by node name, so the copies of the
+ * node objects Tetrad writes into every edge are never kept. Edges rejected
+ * by the EdgeProbabilityFilter are dropped as soon as they have been read.
+ *
+ */
+public class TetradJsonReader {
+
+    // Probabilities of the edge being read, reused for every edge
+    private final double[] edgeProbabilities = new double[EdgeStore.EDGE_TYPE_COUNT];
+
+    private final EdgeProbabilityFilter edgeFilter;
+
+    // Progress of the read in progress, reported every ImportProgress.CHECK_INTERVAL nodes or edges
+    private ImportProgress progress = ImportProgress.none();
+    private long size = 0;
+    private int itemCount = 0;
+
+    public TetradJsonReader() {
+        this(EdgeProbabilityFilter.ACCEPT_ALL);
+    }
+
+    public TetradJsonReader(final EdgeProbabilityFilter edgeFilter) {
+        this.edgeFilter = edgeFilter;
+    }
+
+    public TetradGraphData read(Path file) throws IOException {
+        return read(file, ImportProgress.none());
+    }
+
+    /**
+     * @param file the Tetrad json file
+     * @param progress gets the read position every few thousand nodes or
+     * edges, and may cancel the read
+     * @return the parsed graph
+     * @throws IOException
+     */
+    public TetradGraphData read(Path file, ImportProgress progress) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in, Files.size(file), progress);
+        }
+    }
+
+    public TetradGraphData read(InputStream in) throws IOException {
+        return read(in, 0, ImportProgress.none());
+    }
+
+    /**
+     * @param in the Tetrad json
+     * @param size size of the json in bytes, 0 if not known
+     * @param progress gets the read position every few thousand nodes or
+     * edges, and may cancel the read
+     * @return the parsed graph
+     * @throws IOException
+     */
+    public TetradGraphData read(InputStream in, long size, ImportProgress progress) throws IOException {
+        this.progress = progress;
+        this.size = size;
+        this.itemCount = 0;
+
+        JsonTokenReader reader = new JsonTokenReader(in);
+
+        TetradGraphData graph = new TetradGraphData();
+        TetradGraphData wrappedGraph = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            // If tetrad json file saved from Dag, SemGraph, or TimelagGraph, we'll have the "graph" property
+            // Otherwise a regular tetrad graph will save the json without wrapping into "graph" property
+            if ("graph".equals(name) && reader.peek() == JsonTokenReader.Token.BEGIN_OBJECT) {
+                wrappedGraph = new TetradGraphData();
+                reader.beginObject();
+                readGraphMembers(reader, wrappedGraph);
+                reader.endObject();
+            } else {
+                readGraphMember(reader, name, graph);
+            }
+        }
+        reader.endObject();
+
+        TetradGraphData result = (wrappedGraph == null) ? graph : wrappedGraph;
+        result.getEdges().trimToSize();
+
+        return result;
+    }
+
+    private void readGraphMembers(JsonTokenReader reader, TetradGraphData graph) throws IOException {
+        while (reader.hasNext()) {
+            readGraphMember(reader, reader.nextName(), graph);
+        }
+    }
+
+    private void readGraphMember(JsonTokenReader reader, String name, TetradGraphData graph) throws IOException {
+        if ("nodes".equals(name) && reader.peek() == JsonTokenReader.Token.BEGIN_ARRAY) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readNode(reader, graph);
+                countItem(reader);
+            }
+            reader.endArray();
+        } else if ("edgesSet".equals(name) && reader.peek() == JsonTokenReader.Token.BEGIN_ARRAY) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readEdge(reader, graph);
+                countItem(reader);
+            }
+            reader.endArray();
+        } else {
+            reader.skipValue();
+        }
+    }
+
+    private void countItem(JsonTokenReader reader) {
+        if (++itemCount % ImportProgress.CHECK_INTERVAL == 0) {
+            // Characters and bytes are the same for the mostly ASCII Tetrad json
+            progress.update(reader.getPosition(), size);
+        }
+    }
+
+    /**
+     * Reads a node object and adds it to the graph.
+     *
+     * @return the node index or -1 if the object has no name
+     */
+    private int readNode(JsonTokenReader reader, TetradGraphData graph) throws IOException {
+        if (reader.peek() != JsonTokenReader.Token.BEGIN_OBJECT) {
+            reader.skipValue();
+            return -1;
+        }
+
+        String nodeName = null;
+        double centerX = Double.NaN;
+        double centerY = Double.NaN;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonTokenReader.Token token = reader.peek();
+            if ("name".equals(name) && token == JsonTokenReader.Token.STRING) {
+                nodeName = reader.nextInternedString();
+            } else if ("centerX".equals(name) && token == JsonTokenReader.Token.NUMBER) {
+                centerX = reader.nextDouble();
+            } else if ("centerY".equals(name) && token == JsonTokenReader.Token.NUMBER) {
+                centerY = reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return (nodeName == null) ? -1 : graph.addNode(nodeName, centerX, centerY);
+    }
+
+    private void readEdge(JsonTokenReader reader, TetradGraphData graph) throws IOException {
+        EdgeStore edges = graph.getEdges();
+
+        int node1 = -1;
+        int node2 = -1;
+        int endpoint1 = EdgeStore.UNKNOWN_ENDPOINT;
+        int endpoint2 = EdgeStore.UNKNOWN_ENDPOINT;
+
+        // Probabilities are kept in edgeProbabilities until the edge can be added
+        boolean hasProbabilities = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "node1":
+                    // Resolve the endpoints by name, the node may not have been listed in "nodes" yet
+                    node1 = readNode(reader, graph);
+                    break;
+                case "node2":
+                    node2 = readNode(reader, graph);
+                    break;
+                case "endpoint1":
+                    endpoint1 = readEndpoint(reader);
+                    break;
+                case "endpoint2":
+                    endpoint2 = readEndpoint(reader);
+                    break;
+                case "edgeTypeProbabilities":
+                    hasProbabilities = readEdgeTypeProbabilities(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (node1 < 0 || node2 < 0) {
+            throw new IOException("Edge without node1 or node2 in the Tetrad json file.");
+        }
+
+        // Edges that didn't make the probability cut never get into the edge store
+        if (hasProbabilities && !edgeFilter.accept(edgeProbabilities)) {
+            graph.addDroppedEdge();
+            return;
+        }
+
+        int edge = edges.addEdge(node1, node2, endpoint1, endpoint2);
+        if (hasProbabilities) {
+            for (int i = 0; i < edgeProbabilities.length; i++) {
+                if (!Double.isNaN(edgeProbabilities[i])) {
+                    edges.setProbability(edge, i, edgeProbabilities[i]);
+                }
+            }
+        }
+    }
+
+    private int readEndpoint(JsonTokenReader reader) throws IOException {
+        int endpoint = EdgeStore.UNKNOWN_ENDPOINT;
+
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("ordinal".equals(reader.nextName()) && reader.peek() == JsonTokenReader.Token.NUMBER) {
+                        int ordinal = reader.nextInt();
+                        if (ordinal >= 0 && ordinal < EdgeStore.ENDPOINTS.length) {
+                            endpoint = ordinal;
+                        }
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                break;
+            case STRING:
+                // Newer Tetrad versions write the enum name instead
+                String endpointName = reader.nextString();
+                for (int i = 0; i < EdgeStore.ENDPOINTS.length; i++) {
+                    if (EdgeStore.ENDPOINTS[i].toString().equalsIgnoreCase(endpointName)) {
+                        endpoint = i;
+                    }
+                }
+                break;
+            default:
+                reader.skipValue();
+                break;
+        }
+
+        return endpoint;
+    }
+
+    /**
+     * Reads the probability per EdgeTypeProbability.EdgeType ordinal into
+     * edgeProbabilities, NaN where not given.
+     *
+     * @return false if there are none
+     */
+    private boolean readEdgeTypeProbabilities(JsonTokenReader reader) throws IOException {
+        Arrays.fill(edgeProbabilities, Double.NaN);
+
+        if (reader.peek() != JsonTokenReader.Token.BEGIN_ARRAY) {
+            reader.skipValue();
+            return false;
+        }
+
+        boolean hasProbabilities = false;
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonTokenReader.Token.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+
+            int edgeType = -1;
+            double probability = 0.0;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("edgeType".equals(name) && reader.peek() == JsonTokenReader.Token.STRING) {
+                    edgeType = toEdgeType(reader.nextInternedString());
+                } else if ("probability".equals(name) && reader.peek() == JsonTokenReader.Token.NUMBER) {
+                    probability = reader.nextDouble();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (edgeType >= 0) {
+                edgeProbabilities[edgeType] = probability;
+                hasProbabilities = true;
+            }
+        }
+        reader.endArray();
+
+        return hasProbabilities;
+    }
+
+    /**
+     * @return the EdgeTypeProbability.EdgeType ordinal of the name
+     * @throws IOException for an edge type this Tetrad version doesn't know
+     */
+    private static int toEdgeType(String edgeTypeName) throws IOException {
+        for (int i = 0; i < EdgeStore.EDGE_TYPE_COUNT; i++) {
+            if (EdgeStore.EDGE_TYPES[i].name().equals(edgeTypeName)) {
+                return i;
+            }
+        }
+
+        throw new IOException("Unknown edgeType \"" + edgeTypeName + "\" in the Tetrad json file.");
+    }
+
+}
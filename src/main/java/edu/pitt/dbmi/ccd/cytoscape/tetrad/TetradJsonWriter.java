@@ -0,0 +1,244 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a graph as a Tetrad json file, the way Tetrad writes
+ * SampleTetradGraphOutput.json: "nodes", "edgesSet" with a full copy of both
+ * nodes in every edge, "edgeLists" with every edge once per node, "namesHash"
+ * and the (empty) triple lists.
+ *
+ * The json text is streamed straight to the file, no object tree is built.
+ * Only the json of every node is kept, since each node is repeated in all
+ * of its edges.
+ *
+ */
+public class TetradJsonWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private TetradJsonWriter() {
+    }
+
+    /**
+     * Writes the graph as Tetrad json, gzip compressed if the file name ends
+     * with .json.gz. The file is only replaced once it was fully written.
+     *
+     * @param tetradGraph the graph
+     * @param file the file to write
+     * @param progress progress and cancellation of the write
+     * @throws IOException
+     */
+    public static void write(TetradGraphData tetradGraph, Path file, ImportProgress progress) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        boolean gzip = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(TetradGraphFiles.GZIP_JSON_EXTENSION);
+
+        // Written next to the file and moved in place, a cancelled export leaves the old file alone
+        Path tempFile = Files.createTempFile(directory, "tetrad-", ".tmp");
+        try {
+            try (OutputStream out = gzip ? newGzipOutputStream(tempFile) : Files.newOutputStream(tempFile)) {
+                write(tetradGraph, out, progress);
+            }
+            try {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Writes the graph as Tetrad json. The stream is flushed but not closed.
+     *
+     * @param tetradGraph the graph
+     * @param out the stream to write the UTF-8 json text to
+     * @param progress progress and cancellation of the write
+     * @throws IOException
+     */
+    public static void write(TetradGraphData tetradGraph, OutputStream out, ImportProgress progress) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        EdgeStore edges = tetradGraph.getEdges();
+        int nodeCount = tetradGraph.getNodeCount();
+        int edgeCount = edges.size();
+
+        // Every node is written 1 + 4 * degree times, its json is only built once
+        String[] nodeJsons = new String[nodeCount];
+        String[] nodeNameJsons = new String[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodeNameJsons[i] = quote(tetradGraph.getNodeName(i));
+            nodeJsons[i] = toNodeJson(tetradGraph, i, nodeNameJsons[i]);
+        }
+
+        // Edges, nodes and edge list entries, for the progress
+        long total = 2L * nodeCount + 3L * edgeCount;
+        long done = 0;
+
+        writer.write("{\"nodes\":[");
+        for (int i = 0; i < nodeCount; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(nodeJsons[i]);
+        }
+        done += nodeCount;
+
+        writer.write("],\"edgesSet\":[");
+        for (int i = 0; i < edgeCount; i++) {
+            if (i % ImportProgress.CHECK_INTERVAL == 0) {
+                progress.update(done + i, total);
+            }
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeEdge(writer, edges, i, nodeJsons);
+        }
+        done += edgeCount;
+
+        writer.write("],\"edgeLists\":{");
+        GraphAdjacency adjacency = new GraphAdjacency(tetradGraph);
+        for (int node = 0; node < nodeCount; node++) {
+            if (node > 0) {
+                writer.write(',');
+            }
+            writer.write(nodeNameJsons[node]);
+            writer.write(":[");
+            int degree = adjacency.getDegree(node);
+            for (int i = 0; i < degree; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeEdge(writer, edges, adjacency.getEdge(node, i), nodeJsons);
+            }
+            writer.write(']');
+
+            done += 1 + degree;
+            if (node % ImportProgress.CHECK_INTERVAL == 0) {
+                progress.update(done, total);
+            }
+        }
+
+        writer.write("},\"ambiguousTriples\":[],\"underLineTriples\":[],\"dottedUnderLineTriples\":[],"
+                + "\"stuffRemovedSinceLastTripleAccess\":false,\"highlightedEdges\":[],\"namesHash\":{");
+        for (int i = 0; i < nodeCount; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(nodeNameJsons[i]);
+            writer.write(':');
+            writer.write(nodeJsons[i]);
+        }
+        writer.write("},\"pattern\":false,\"pag\":false}");
+
+        writer.flush();
+        progress.update(total, total);
+    }
+
+    /**
+     * The json repeats every node many times, so the fastest compression
+     * level still shrinks it about eightfold.
+     */
+    private static OutputStream newGzipOutputStream(Path file) throws IOException {
+        return new GZIPOutputStream(Files.newOutputStream(file), BUFFER_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+    }
+
+    private static String toNodeJson(TetradGraphData tetradGraph, int node, String nameJson) {
+        StringBuilder json = new StringBuilder(64 + nameJson.length());
+        json.append("{\"nodeType\":{\"ordinal\":0}");
+
+        // Tetrad keeps whole pixel locations, nodes without one get none
+        double centerX = tetradGraph.getCenterX(node);
+        double centerY = tetradGraph.getCenterY(node);
+        if (!Double.isNaN(centerX) && !Double.isNaN(centerY)) {
+            json.append(",\"centerX\":").append(Math.round(centerX));
+            json.append(",\"centerY\":").append(Math.round(centerY));
+        }
+
+        return json.append(",\"name\":").append(nameJson).append('}').toString();
+    }
+
+    private static void writeEdge(Writer writer, EdgeStore edges, int edge, String[] nodeJsons) throws IOException {
+        writer.write("{\"node1\":");
+        writer.write(nodeJsons[edges.getSource(edge)]);
+        writer.write(",\"node2\":");
+        writer.write(nodeJsons[edges.getTarget(edge)]);
+        writer.write(",\"endpoint1\":{\"ordinal\":");
+        writer.write(Integer.toString(edges.getEndpoint1(edge)));
+        writer.write("},\"endpoint2\":{\"ordinal\":");
+        writer.write(Integer.toString(edges.getEndpoint2(edge)));
+        writer.write("},\"bold\":false,\"properties\":[]");
+
+        // Like Tetrad, either all the edge types get a probability or none does
+        if (edges.hasProbabilities(edge)) {
+            writer.write(",\"edgeTypeProbabilities\":[");
+            for (int i = 0; i < EdgeStore.EDGE_TYPE_COUNT; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                double probability = edges.getProbability(edge, i);
+                writer.write("{\"edgeType\":\"");
+                writer.write(EdgeStore.EDGE_TYPES[i].name());
+                writer.write("\",\"probability\":");
+                writer.write(Double.toString(Double.isNaN(probability) ? 0.0 : probability));
+                writer.write('}');
+            }
+            writer.write(']');
+        }
+
+        writer.write('}');
+    }
+
+    /**
+     * @return the text as a json string, with quotes
+     */
+    private static String quote(String text) {
+        StringBuilder json = new StringBuilder(text.length() + 2);
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+
+        return json.append('"').toString();
+    }
+
+}
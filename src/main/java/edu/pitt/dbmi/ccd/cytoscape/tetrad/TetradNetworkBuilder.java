@@ -0,0 +1,345 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import edu.cmu.tetrad.graph.EdgeTypeProbability;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import static java.util.stream.Collectors.joining;
+import org.cytoscape.event.CyEventHelper;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNetworkFactory;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds a Cytoscape network from the parsed Tetrad graph in bulk.
+ *
+ * All nodes and edges are created first, then the node and edge tables are
+ * filled column by column while the tables are silenced, so no table event
+ * is fired per cell. The network is returned unregistered, it is up to the
+ * caller to add it to the CyNetworkManager once it is fully populated.
+ *
+ */
+public class TetradNetworkBuilder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TetradNetworkBuilder.class);
+
+    public static final String NETWORK_NAME = "Tetrad Output Network";
+    public static final String CCD_ANNOTATIONS = "__CCD_Annotations";
+    public static final String CCD_ANNOTATION_SET = "__CCD_Annotation_Set";
+
+    // Numeric edge columns, one per EdgeTypeProbability.EdgeType plus the max non-nil one
+    public static final String PROBABILITY_COLUMN_PREFIX = "probability_";
+    public static final String MAX_EDGE_TYPE = "max_edge_type";
+    public static final String MAX_PROBABILITY = "max_probability";
+
+    private final CyNetworkFactory cyNetworkFactory;
+    private final CyEventHelper cyEventHelper;
+
+    public TetradNetworkBuilder(final CyNetworkFactory cyNetworkFactory, final CyEventHelper cyEventHelper) {
+        this.cyNetworkFactory = cyNetworkFactory;
+        this.cyEventHelper = cyEventHelper;
+    }
+
+    public CyNetwork buildNetwork(TetradGraphData tetradGraph) {
+        return buildNetwork(tetradGraph, NETWORK_NAME, new ImportOptions(), ImportProgress.none());
+    }
+
+    /**
+     * Builds the network in the NODES, EDGES and ANNOTATIONS stages. If the
+     * import is cancelled a CancellationException is thrown and the half
+     * built network, which was never registered, is simply dropped.
+     *
+     * @param tetradGraph the parsed Tetrad graph
+     * @param networkName name of the new network
+     * @param options import options
+     * @param progress progress and cancellation of the import
+     * @return the unregistered network
+     */
+    public CyNetwork buildNetwork(TetradGraphData tetradGraph, String networkName, ImportOptions options, ImportProgress progress) {
+        List<String> nodeNames = tetradGraph.getNodeNames();
+        EdgeStore edges = tetradGraph.getEdges();
+
+        // Create the cytoscape network
+        CyNetwork myNet = cyNetworkFactory.createNetwork();
+
+        CyTable myNetTable = myNet.getDefaultNetworkTable();
+        CyTable myNodeTable = myNet.getDefaultNodeTable();
+        CyTable myEdgeTable = myNet.getDefaultEdgeTable();
+
+        createColumns(myNet, options);
+
+        // Add all the nodes first, rows are filled in later
+        progress.startStage(ImportStage.NODES);
+        CyNode[] cyNodes = new CyNode[nodeNames.size()];
+        for (int i = 0; i < cyNodes.length; i++) {
+            cyNodes[i] = myNet.addNode();
+            if (i % ImportProgress.CHECK_INTERVAL == 0) {
+                progress.update(i, cyNodes.length);
+            }
+        }
+
+        // Then all the edges, the edge store already refers to nodes by index
+        progress.startStage(ImportStage.EDGES);
+        CyEdge[] cyEdges = new CyEdge[edges.size()];
+        for (int i = 0; i < cyEdges.length; i++) {
+            cyEdges[i] = myNet.addEdge(cyNodes[edges.getSource(i)], cyNodes[edges.getTarget(i)], true);
+            if (i % ImportProgress.CHECK_INTERVAL == 0) {
+                progress.update(i, cyEdges.length);
+            }
+        }
+
+        // The network is not registered yet, so nobody needs to hear about every single cell
+        cyEventHelper.silenceEventSource(myNetTable);
+        cyEventHelper.silenceEventSource(myNodeTable);
+        cyEventHelper.silenceEventSource(myEdgeTable);
+        try {
+            // Set the name for network in Network Table
+            myNet.getRow(myNet).set(CyNetwork.NAME, networkName);
+
+            progress.startStage(ImportStage.ANNOTATIONS);
+
+            fillNodeTable(myNodeTable, cyNodes, nodeNames);
+
+            // Look up each edge row once and then go through the table column by column
+            CyRow[] myEdgeRows = new CyRow[cyEdges.length];
+            for (int i = 0; i < cyEdges.length; i++) {
+                myEdgeRows[i] = myEdgeTable.getRow(cyEdges[i].getSUID());
+            }
+
+            fillEdgeRows(myNet, myEdgeRows, tetradGraph, options, progress);
+            progress.endStage();
+        } finally {
+            cyEventHelper.unsilenceEventSource(myNetTable);
+            cyEventHelper.unsilenceEventSource(myNodeTable);
+            cyEventHelper.unsilenceEventSource(myEdgeTable);
+        }
+
+        return myNet;
+    }
+
+    /**
+     * Creates the Tetrad columns the options ask for, unless the network
+     * already has them.
+     *
+     * @param myNet the network
+     * @param options import options
+     */
+    void createColumns(CyNetwork myNet, ImportOptions options) {
+        CyTable myNetTable = myNet.getDefaultNetworkTable();
+        CyTable myNodeTable = myNet.getDefaultNodeTable();
+        CyTable myEdgeTable = myNet.getDefaultEdgeTable();
+
+        if (options.ccdAnnotations && myEdgeTable.getColumn(CCD_ANNOTATION_SET) == null) {
+            // Create "__CCD_Annotaions" column in Network Table
+            myNetTable.createListColumn(CCD_ANNOTATIONS, String.class, true);
+            // Create the "__CCD_Annotation_Set" column in Node Table and Edge Table
+            myNodeTable.createListColumn(CCD_ANNOTATION_SET, String.class, true);
+            myEdgeTable.createListColumn(CCD_ANNOTATION_SET, String.class, true);
+        }
+
+        if (options.probabilityColumns && myEdgeTable.getColumn(MAX_PROBABILITY) == null) {
+            createProbabilityColumns(myEdgeTable);
+        }
+    }
+
+    /**
+     * Fills the edge rows from the Tetrad graph, one column at a time. The
+     * rows are indexed by edge index, null rows are left as they are.
+     *
+     * @param myNet the network the rows belong to
+     * @param myEdgeRows edge row per edge index, may contain nulls
+     * @param tetradGraph the parsed Tetrad graph
+     * @param options import options
+     * @param progress checked for cancellation between the columns
+     */
+    void fillEdgeRows(CyNetwork myNet, CyRow[] myEdgeRows, TetradGraphData tetradGraph, ImportOptions options, ImportProgress progress) {
+        // The per edge work is done in parallel, only the rows are written one by one
+        EdgeRowValues values = new EdgeRowValues(tetradGraph, myEdgeRows, progress);
+
+        fillEdgeTable(myEdgeRows, tetradGraph.getEdges(), values);
+        progress.update(1, 3);
+
+        if (options.probabilityColumns) {
+            fillProbabilityColumns(myEdgeRows, tetradGraph.getEdges(), values);
+        }
+        progress.update(2, 3);
+
+        if (options.ccdAnnotations) {
+            // Annotations already in the network keep their uuid, new edge types are added to the end
+            List<String> __CCD_Annotations = new LinkedList<>();
+            List<String> existingAnnotations = myNet.getRow(myNet).getList(CCD_ANNOTATIONS, String.class);
+            if (existingAnnotations != null) {
+                __CCD_Annotations.addAll(existingAnnotations);
+            }
+
+            fillAnnotationSetColumn(myEdgeRows, tetradGraph, values, __CCD_Annotations, progress);
+
+            // Add all items to "__CCD_Annotations" column in the Network Table
+            myNet.getRow(myNet).set(CCD_ANNOTATIONS, __CCD_Annotations);
+        }
+    }
+
+    private void fillNodeTable(CyTable myNodeTable, CyNode[] cyNodes, List<String> nodeNames) {
+        // Nodes don't have annotations yet, so their "__CCD_Annotation_Set" cells are left unset
+        for (int i = 0; i < cyNodes.length; i++) {
+            myNodeTable.getRow(cyNodes[i].getSUID()).set(CyNetwork.NAME, nodeNames.get(i));
+        }
+    }
+
+    private void fillEdgeTable(CyRow[] myRows, EdgeStore edges, EdgeRowValues values) {
+        // "interaction" column, one shared string per endpoint combination
+        for (int i = 0; i < myRows.length; i++) {
+            if (myRows[i] != null) {
+                myRows[i].set(CyEdge.INTERACTION, edges.getEdgeType(i));
+            }
+        }
+
+        // "name" column
+        for (int i = 0; i < myRows.length; i++) {
+            if (myRows[i] != null) {
+                myRows[i].set(CyNetwork.NAME, values.getName(i));
+            }
+        }
+    }
+
+    private void createProbabilityColumns(CyTable myEdgeTable) {
+        for (EdgeTypeProbability.EdgeType edgeType : EdgeStore.EDGE_TYPES) {
+            myEdgeTable.createColumn(PROBABILITY_COLUMN_PREFIX + edgeType.name(), Double.class, true);
+        }
+        myEdgeTable.createColumn(MAX_EDGE_TYPE, String.class, true);
+        myEdgeTable.createColumn(MAX_PROBABILITY, Double.class, true);
+    }
+
+    private void fillProbabilityColumns(CyRow[] myRows, EdgeStore edges, EdgeRowValues values) {
+        // One "probability_<edge type>" column at a time, cells Tetrad gave no value for stay unset
+        for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+            String columnName = PROBABILITY_COLUMN_PREFIX + EdgeStore.EDGE_TYPES[edgeType].name();
+            for (int i = 0; i < myRows.length; i++) {
+                double probability = edges.getProbability(i, edgeType);
+                if (myRows[i] != null && !Double.isNaN(probability)) {
+                    myRows[i].set(columnName, probability);
+                }
+            }
+        }
+
+        // The edge type that has the max probability value and is not nil
+        for (int i = 0; i < myRows.length; i++) {
+            int maxEdgeType = values.getMaxEdgeType(i);
+            if (myRows[i] != null && maxEdgeType >= 0) {
+                myRows[i].set(MAX_EDGE_TYPE, EdgeStore.EDGE_TYPES[maxEdgeType].name());
+                myRows[i].set(MAX_PROBABILITY, edges.getProbability(i, maxEdgeType));
+            }
+        }
+    }
+
+    private void fillAnnotationSetColumn(CyRow[] myRows, TetradGraphData tetradGraph, EdgeRowValues values, List<String> __CCD_Annotations, ImportProgress progress) {
+        EdgeStore edges = tetradGraph.getEdges();
+
+        // Store all the unique edge types and their corresponding UUIDs for later reuse
+        Map<String, String> edgeType2UUIDMap = new HashMap<>();
+        for (String annotation : __CCD_Annotations) {
+            Map<String, String> annoArgs = parseAnnotationArgs(annotation);
+            if (annoArgs.containsKey("name") && annoArgs.containsKey("uuid")) {
+                edgeType2UUIDMap.put(annoArgs.get("name"), annoArgs.get("uuid"));
+            }
+        }
+
+        // Ids of the annotations of new edge types
+        AnnotationIds annotationIds = new AnnotationIds();
+
+        // New edge types are added in the order of their first edge, as if the edges were read one by one
+        String[] edgeTypeUUIDs = new String[EdgeStore.EDGE_TYPE_COUNT];
+        for (int maxEdgeType : values.getMaxEdgeTypesInOrder()) {
+            String edgeTypeName = EdgeStore.EDGE_TYPES[maxEdgeType].name();
+
+            // Generate a new UUID for this edge type if not found
+            if (edgeType2UUIDMap.get(edgeTypeName) == null) {
+                // Generate new UUID
+                String a_id = annotationIds.next();
+                // Add to map for later reuse
+                edgeType2UUIDMap.put(edgeTypeName, a_id);
+
+                // Use LinkedHashMap to keeps the keys in the order they were inserted
+                Map<String, String> maxEdgeTypeAnnoArgs = new LinkedHashMap<>();
+
+                // A unique identifier for the annotation (separate from the Cytoscape generated annotation uuid)
+                maxEdgeTypeAnnoArgs.put("uuid", a_id);
+                // The naming information for the annotation (for example: tt, ta edge types)
+                maxEdgeTypeAnnoArgs.put("name", edgeTypeName);
+                // The type of the value (string, float, char, bool)
+                maxEdgeTypeAnnoArgs.put("type", "float");
+                // A description for the annotation name
+                maxEdgeTypeAnnoArgs.put("description", "The edge type that has max probability value");
+
+                // Convert args into "key1=val1|key2=val2" string format
+                String formattedEdgeTypeAnnoArgs = maxEdgeTypeAnnoArgs.entrySet()
+                        .stream()
+                        .map(e -> e.getKey() + "=" + e.getValue())
+                        .collect(joining("|"));
+
+                // Add to the "__CCD_Annotations" column in Network Table
+                __CCD_Annotations.add(formattedEdgeTypeAnnoArgs);
+            }
+            edgeTypeUUIDs[maxEdgeType] = edgeType2UUIDMap.get(edgeTypeName);
+        }
+
+        // Each item in __CCD_Annotation_Set: the CCD annotation uuid from __CCD_Annotations,
+        // the Cytoscape annotation uuid and the value, typed by the CCD annotation
+        values.buildAnnotations(edgeTypeUUIDs, progress);
+
+        // "__CCD_Annotation_Set" column
+        for (int i = 0; i < myRows.length; i++) {
+            if (i % ImportProgress.CHECK_INTERVAL == 0) {
+                // The slowest column, the last third of the stage
+                progress.update(2L * myRows.length + i, 3L * myRows.length);
+            }
+
+            if (myRows[i] == null) {
+                continue;
+            }
+
+            // Find the max edge type probablity if generated by bootstraping
+            if (!edges.hasProbabilities(i)) {
+                // Counted in the import metrics, only worth a line each when debugging
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("This edge [{}] doesn't have edge type probablities information.", values.getName(i));
+                }
+                continue;
+            }
+
+            String formattedAnnoSetArgs = values.getAnnotation(i);
+            if (formattedAnnoSetArgs == null) {
+                continue;
+            }
+
+            // Add to "__CCD_Annotation_Set" column in Edge Table
+            List<String> __CCD_Annotation_Set = new ArrayList<>(1);
+            __CCD_Annotation_Set.add(formattedAnnoSetArgs);
+            myRows[i].set(CCD_ANNOTATION_SET, __CCD_Annotation_Set);
+        }
+    }
+
+    /**
+     * Splits a "key1=val1|key2=val2" string back into its args.
+     */
+    static Map<String, String> parseAnnotationArgs(String annotation) {
+        Map<String, String> annoArgs = new LinkedHashMap<>();
+        for (String arg : annotation.split("\\|")) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                annoArgs.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+
+        return annoArgs;
+    }
+
+}
@@ -0,0 +1,248 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+
+/**
+ * Turns a Cytoscape network back into a Tetrad graph, the reverse of
+ * TetradNetworkBuilder: nodes by their "name", endpoints from the
+ * "interaction" strings ("-->", "o->", "<->", ...) and the edge type
+ * probabilities from the "probability_&lt;edge type&gt;" columns.
+ *
+ * Networks imported without those columns only have the most likely edge
+ * type and its probability in "__CCD_Annotation_Set", that one probability
+ * is exported instead.
+ *
+ * Edges added in Cytoscape whose interaction is no Tetrad edge become
+ * directed (-->) or undirected (---) edges, as Cytoscape has them.
+ *
+ */
+public class TetradNetworkExporter {
+
+    private final CyNetwork myNet;
+
+    // The view for the node locations, may be null
+    private final CyNetworkView myView;
+
+    // Edges whose interaction is not a Tetrad edge
+    private int unknownInteractionCount = 0;
+
+    // Nodes merged into an earlier node of the same name
+    private int duplicateNodeCount = 0;
+
+    // Edges with only the most likely edge type probability, from the annotations
+    private int annotationOnlyCount = 0;
+
+    public TetradNetworkExporter(CyNetwork myNet, CyNetworkView myView) {
+        this.myNet = myNet;
+        this.myView = myView;
+    }
+
+    /**
+     * @param progress progress and cancellation of the conversion
+     * @return the network as a Tetrad graph
+     */
+    public TetradGraphData toTetradGraph(ImportProgress progress) {
+        TetradGraphData tetradGraph = new TetradGraphData();
+
+        // Node index per node SUID
+        List<CyNode> cyNodes = myNet.getNodeList();
+        Map<Long, Integer> nodeIndexes = new HashMap<>(cyNodes.size() * 2);
+        for (CyNode cyNode : cyNodes) {
+            String name = myNet.getRow(cyNode).get(CyNetwork.NAME, String.class);
+            if (name == null || name.isEmpty()) {
+                name = "X" + cyNode.getSUID();
+            }
+
+            double centerX = Double.NaN;
+            double centerY = Double.NaN;
+            View<CyNode> nodeView = (myView == null) ? null : myView.getNodeView(cyNode);
+            if (nodeView != null) {
+                Double x = nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION);
+                Double y = nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION);
+                if (x != null && y != null) {
+                    centerX = x;
+                    centerY = y;
+                }
+            }
+
+            int nodeCount = tetradGraph.getNodeCount();
+            int node = tetradGraph.addNode(name, centerX, centerY);
+            if (node < nodeCount) {
+                duplicateNodeCount++;
+            }
+            nodeIndexes.put(cyNode.getSUID(), node);
+        }
+
+        // The probability columns of an imported network, any of them may be missing
+        CyTable myEdgeTable = myNet.getDefaultEdgeTable();
+        String[] probabilityColumns = new String[EdgeStore.EDGE_TYPE_COUNT];
+        boolean hasProbabilityColumns = false;
+        for (int i = 0; i < EdgeStore.EDGE_TYPE_COUNT; i++) {
+            String columnName = TetradNetworkBuilder.PROBABILITY_COLUMN_PREFIX + EdgeStore.EDGE_TYPES[i].name();
+            CyColumn column = myEdgeTable.getColumn(columnName);
+            if (column != null && column.getType() == Double.class) {
+                probabilityColumns[i] = columnName;
+                hasProbabilityColumns = true;
+            }
+        }
+
+        // Without them, the edge type ordinal per annotation id of the network
+        Map<String, Integer> annotationEdgeTypes = hasProbabilityColumns ? null : getAnnotationEdgeTypes();
+
+        EdgeStore edges = tetradGraph.getEdges();
+        List<CyEdge> cyEdges = myNet.getEdgeList();
+        for (int i = 0; i < cyEdges.size(); i++) {
+            if (i % ImportProgress.CHECK_INTERVAL == 0) {
+                progress.update(i, cyEdges.size());
+            }
+
+            CyEdge cyEdge = cyEdges.get(i);
+            CyRow myRow = myNet.getRow(cyEdge);
+
+            int endpoint1 = EdgeStore.UNKNOWN_ENDPOINT;
+            int endpoint2 = EdgeStore.UNKNOWN_ENDPOINT;
+            String interaction = myRow.get(CyEdge.INTERACTION, String.class);
+            if (interaction != null && interaction.length() == 3 && interaction.charAt(1) == '-') {
+                endpoint1 = toEndpoint1(interaction.charAt(0));
+                endpoint2 = toEndpoint2(interaction.charAt(2));
+            }
+            if (endpoint1 == EdgeStore.UNKNOWN_ENDPOINT || endpoint2 == EdgeStore.UNKNOWN_ENDPOINT) {
+                unknownInteractionCount++;
+                endpoint1 = EdgeStore.TAIL;
+                endpoint2 = cyEdge.isDirected() ? EdgeStore.ARROW : EdgeStore.TAIL;
+            }
+
+            int edge = edges.addEdge(nodeIndexes.get(cyEdge.getSource().getSUID()), nodeIndexes.get(cyEdge.getTarget().getSUID()),
+                    endpoint1, endpoint2);
+
+            if (hasProbabilityColumns) {
+                for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                    Double probability = (probabilityColumns[edgeType] == null) ? null : myRow.get(probabilityColumns[edgeType], Double.class);
+                    if (probability != null) {
+                        edges.setProbability(edge, edgeType, probability);
+                    }
+                }
+            } else if (annotationEdgeTypes != null) {
+                setAnnotatedProbability(myRow, edges, edge, annotationEdgeTypes);
+            }
+        }
+        edges.trimToSize();
+
+        return tetradGraph;
+    }
+
+    public int getUnknownInteractionCount() {
+        return unknownInteractionCount;
+    }
+
+    public int getDuplicateNodeCount() {
+        return duplicateNodeCount;
+    }
+
+    /**
+     * @return the number of edges that only got the probability of their
+     * most likely edge type, from the CCD annotations
+     */
+    public int getAnnotationOnlyCount() {
+        return annotationOnlyCount;
+    }
+
+    /**
+     * @return the edge type ordinal per annotation id in "__CCD_Annotations",
+     * null if the network has no CCD annotations
+     */
+    private Map<String, Integer> getAnnotationEdgeTypes() {
+        if (myNet.getDefaultNetworkTable().getColumn(TetradNetworkBuilder.CCD_ANNOTATIONS) == null
+                || myNet.getDefaultEdgeTable().getColumn(TetradNetworkBuilder.CCD_ANNOTATION_SET) == null) {
+            return null;
+        }
+
+        Map<String, Integer> edgeTypeOrdinals = new HashMap<>();
+        for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+            edgeTypeOrdinals.put(EdgeStore.EDGE_TYPES[edgeType].name(), edgeType);
+        }
+
+        Map<String, Integer> annotationEdgeTypes = new HashMap<>();
+        List<String> annotations = myNet.getRow(myNet).getList(TetradNetworkBuilder.CCD_ANNOTATIONS, String.class);
+        if (annotations != null) {
+            for (String annotation : annotations) {
+                Map<String, String> annoArgs = TetradNetworkBuilder.parseAnnotationArgs(annotation);
+                Integer edgeType = edgeTypeOrdinals.get(annoArgs.get("name"));
+                if (edgeType != null && annoArgs.containsKey("uuid")) {
+                    annotationEdgeTypes.put(annoArgs.get("uuid"), edgeType);
+                }
+            }
+        }
+
+        return annotationEdgeTypes.isEmpty() ? null : annotationEdgeTypes;
+    }
+
+    /**
+     * Sets the probability of the edge type in the first entry of the
+     * "__CCD_Annotation_Set" cell, the most likely edge type of the edge.
+     */
+    private void setAnnotatedProbability(CyRow myRow, EdgeStore edges, int edge, Map<String, Integer> annotationEdgeTypes) {
+        List<String> annotationSet = myRow.getList(TetradNetworkBuilder.CCD_ANNOTATION_SET, String.class);
+        if (annotationSet == null || annotationSet.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> annoArgs = TetradNetworkBuilder.parseAnnotationArgs(annotationSet.get(0));
+        Integer edgeType = annotationEdgeTypes.get(annoArgs.get("a_id"));
+        String value = annoArgs.get("value");
+        if (edgeType == null || value == null) {
+            return;
+        }
+
+        try {
+            edges.setProbability(edge, edgeType, Double.parseDouble(value));
+            annotationOnlyCount++;
+        } catch (NumberFormatException e) {
+            // Not an annotation written by the import, the edge goes without probabilities
+        }
+    }
+
+    /**
+     * The reverse of EdgeStore.toEdgeType for node1's end.
+     */
+    private static int toEndpoint1(char endpoint) {
+        switch (endpoint) {
+            case '-':
+                return EdgeStore.TAIL;
+            case '<':
+                return EdgeStore.ARROW;
+            case 'o':
+                return EdgeStore.CIRCLE;
+            default:
+                return EdgeStore.UNKNOWN_ENDPOINT;
+        }
+    }
+
+    /**
+     * The reverse of EdgeStore.toEdgeType for node2's end.
+     */
+    private static int toEndpoint2(char endpoint) {
+        switch (endpoint) {
+            case '-':
+                return EdgeStore.TAIL;
+            case '>':
+                return EdgeStore.ARROW;
+            case 'o':
+                return EdgeStore.CIRCLE;
+            default:
+                return EdgeStore.UNKNOWN_ENDPOINT;
+        }
+    }
+
+}
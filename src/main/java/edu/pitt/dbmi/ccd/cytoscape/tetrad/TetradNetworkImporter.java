@@ -0,0 +1,178 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import org.cytoscape.event.CyEventHelper;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNetworkManager;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewFactory;
+import org.cytoscape.view.model.CyNetworkViewManager;
+
+/**
+ * Turns a parsed Tetrad graph into a registered Cytoscape network, shared by
+ * the single file and the batch import.
+ *
+ */
+public class TetradNetworkImporter {
+
+    private final CyNetworkManager cyNetworkManager;
+    private final CyNetworkViewFactory cyNetworkViewFactory;
+    private final CyNetworkViewManager cyNetworkViewManager;
+    private final TetradNetworkBuilder tetradNetworkBuilder;
+    private final TetradVisualStyle tetradVisualStyle;
+    private final DeferredViewListener deferredViewListener;
+    private final TetradNetworkUpdater tetradNetworkUpdater;
+    private final CyEventHelper cyEventHelper;
+
+    public TetradNetworkImporter(final CyNetworkManager cyNetworkManager,
+            final CyNetworkViewFactory cyNetworkViewFactory,
+            final CyNetworkViewManager cyNetworkViewManager,
+            final TetradNetworkBuilder tetradNetworkBuilder,
+            final TetradVisualStyle tetradVisualStyle,
+            final DeferredViewListener deferredViewListener,
+            final CyEventHelper cyEventHelper) {
+
+        this.cyNetworkManager = cyNetworkManager;
+        this.cyNetworkViewFactory = cyNetworkViewFactory;
+        this.cyNetworkViewManager = cyNetworkViewManager;
+        this.tetradNetworkBuilder = tetradNetworkBuilder;
+        this.tetradVisualStyle = tetradVisualStyle;
+        this.deferredViewListener = deferredViewListener;
+        this.tetradNetworkUpdater = new TetradNetworkUpdater(tetradNetworkBuilder);
+        this.cyEventHelper = cyEventHelper;
+    }
+
+    /**
+     * Builds the network and adds it to Cytoscape. Graphs with more nodes plus
+     * edges than the view threshold only get the network, their view, layout
+     * and style are applied once the user creates a view.
+     *
+     * @param tetradGraph the parsed Tetrad graph
+     * @param networkName name of the new network
+     * @param options import options
+     * @param viewThreshold max number of nodes plus edges to create a view for
+     * @param progress progress and cancellation of the import, if cancelled
+     * a CancellationException is thrown and no network is left behind. Its
+     * metrics are completed and written to the network table.
+     * @return the new view, which still needs the Tetrad style, or null if
+     * the view was deferred
+     */
+    public CyNetworkView importGraph(TetradGraphData tetradGraph, String networkName, ImportOptions options, int viewThreshold, ImportProgress progress) {
+        // Create the nodes and edges first, then fill the tables in bulk
+        CyNetwork myNet = tetradNetworkBuilder.buildNetwork(tetradGraph, networkName, options, progress);
+
+        progress.startStage(ImportStage.VIEW);
+        TetradNodeLayout nodeLayout = TetradNodeLayout.create(tetradGraph, myNet, options.useTetradLayout);
+
+        // Large graphs only get the network, the view and style come when the user opens it
+        boolean deferView = getGraphSize(tetradGraph) > viewThreshold;
+        if (deferView) {
+            deferredViewListener.deferView(myNet.getSUID(), nodeLayout);
+        }
+
+        // Add the network to Cytoscape
+        cyNetworkManager.addNetwork(myNet);
+
+        if (deferView) {
+            progress.finish(tetradGraph).writeTo(myNet);
+            return null;
+        }
+
+        CyNetworkView myView;
+        try {
+            // Create a new network view
+            myView = cyNetworkViewFactory.createNetworkView(myNet);
+
+            // Initial layout from the centerX/centerY saved by Tetrad, nodes without one go on a grid
+            nodeLayout.apply(myView);
+
+            progress.checkCancelled();
+        } catch (CancellationException e) {
+            // The network is already registered, don't leave it behind without its view
+            cyNetworkManager.destroyNetwork(myNet);
+            throw e;
+        }
+
+        // Add view to Cytoscape
+        cyNetworkViewManager.addNetworkView(myView);
+        progress.finish(tetradGraph).writeTo(myNet);
+
+        return myView;
+    }
+
+    /**
+     * Refreshes an existing network in place, only the nodes and edges that
+     * changed are touched. Views of the network keep their node locations,
+     * new nodes are placed like in a fresh import.
+     *
+     * @param myNet the network to refresh
+     * @param tetradGraph the newly parsed Tetrad graph
+     * @param options import options
+     * @param progress progress and cancellation of the refresh
+     * @return what was changed
+     */
+    public NetworkChanges refreshNetwork(CyNetwork myNet, TetradGraphData tetradGraph, ImportOptions options, ImportProgress progress) {
+        NetworkChanges changes = tetradNetworkUpdater.update(myNet, tetradGraph, options, progress);
+        updateViews(myNet, tetradGraph, options, changes);
+
+        return changes;
+    }
+
+    /**
+     * Adds nodes and edges to an existing network, what it already has is
+     * left alone. Views of the network keep their node locations, new nodes
+     * are placed like in a fresh import.
+     *
+     * @param myNet the network to add to
+     * @param tetradGraph the nodes and edges to add, nodes the network
+     * already has are matched by name
+     * @param options import options
+     * @param progress progress and cancellation of the expansion
+     * @return what was added
+     */
+    public NetworkChanges expandNetwork(CyNetwork myNet, TetradGraphData tetradGraph, ImportOptions options, ImportProgress progress) {
+        NetworkChanges changes = tetradNetworkUpdater.add(myNet, tetradGraph, options, progress);
+        updateViews(myNet, tetradGraph, options, changes);
+
+        return changes;
+    }
+
+    private void updateViews(CyNetwork myNet, TetradGraphData tetradGraph, ImportOptions options, NetworkChanges changes) {
+        Collection<CyNetworkView> views = cyNetworkViewManager.getNetworkViews(myNet);
+        if (changes.isEmpty() || views.isEmpty()) {
+            return;
+        }
+
+        // Let the views create the node and edge views for what was added
+        cyEventHelper.flushPayloadEvents();
+
+        Set<CyNode> addedNodes = new HashSet<>(changes.getAddedNodes());
+        TetradNodeLayout nodeLayout = addedNodes.isEmpty() ? null : TetradNodeLayout.create(tetradGraph, myNet, options.useTetradLayout);
+        for (CyNetworkView myView : views) {
+            if (nodeLayout != null) {
+                nodeLayout.apply(myView, addedNodes);
+            }
+
+            // Restyle so the new and updated edges get the mappings, the view itself stays put
+            tetradVisualStyle.apply(myView);
+            myView.updateView();
+        }
+    }
+
+    /**
+     * @param networkView a view returned by importGraph
+     * @return the task applying the Tetrad style to the view
+     */
+    public ApplyTetradStyleTask createStyleTask(CyNetworkView networkView) {
+        return new ApplyTetradStyleTask(networkView, null, tetradVisualStyle);
+    }
+
+    public static int getGraphSize(TetradGraphData tetradGraph) {
+        return tetradGraph.getNodeCount() + tetradGraph.getEdges().size();
+    }
+
+}
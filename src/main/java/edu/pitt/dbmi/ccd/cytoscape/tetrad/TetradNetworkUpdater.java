@@ -0,0 +1,321 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+
+/**
+ * Refreshes an existing Tetrad network from a newly parsed Tetrad graph.
+ *
+ * Nodes are matched by name and edges by the names of their two nodes, in
+ * either direction. Only what differs is touched: missing nodes and edges are
+ * added, the ones no longer in the graph are removed, and matched edges
+ * whose endpoints or edge type probabilities changed get their rows
+ * rewritten. Everything else, including the view, node locations and
+ * selections, is left as it is.
+ *
+ * A cancelled refresh stops between two items and keeps the changes made so
+ * far, the next refresh picks up from there.
+ *
+ */
+public class TetradNetworkUpdater {
+
+    // Edge columns whose cells depend on the edge type probabilities
+    private static final String[] PROBABILITY_DEPENDENT_COLUMNS = new String[EdgeStore.EDGE_TYPE_COUNT + 3];
+
+    static {
+        for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+            PROBABILITY_DEPENDENT_COLUMNS[edgeType] = TetradNetworkBuilder.PROBABILITY_COLUMN_PREFIX + EdgeStore.EDGE_TYPES[edgeType].name();
+        }
+        PROBABILITY_DEPENDENT_COLUMNS[EdgeStore.EDGE_TYPE_COUNT] = TetradNetworkBuilder.MAX_EDGE_TYPE;
+        PROBABILITY_DEPENDENT_COLUMNS[EdgeStore.EDGE_TYPE_COUNT + 1] = TetradNetworkBuilder.MAX_PROBABILITY;
+        PROBABILITY_DEPENDENT_COLUMNS[EdgeStore.EDGE_TYPE_COUNT + 2] = TetradNetworkBuilder.CCD_ANNOTATION_SET;
+    }
+
+    private final TetradNetworkBuilder tetradNetworkBuilder;
+
+    public TetradNetworkUpdater(final TetradNetworkBuilder tetradNetworkBuilder) {
+        this.tetradNetworkBuilder = tetradNetworkBuilder;
+    }
+
+    /**
+     * @param myNet the network to refresh
+     * @param tetradGraph the newly parsed Tetrad graph
+     * @param options import options
+     * @param progress progress and cancellation of the refresh
+     * @return what was changed
+     */
+    public NetworkChanges update(CyNetwork myNet, TetradGraphData tetradGraph, ImportOptions options, ImportProgress progress) {
+        NetworkChanges changes = new NetworkChanges();
+
+        // Columns the network was built without are added now, their cells count as changed
+        tetradNetworkBuilder.createColumns(myNet, options);
+
+        progress.startStage(ImportStage.NODES);
+        CyNode[] cyNodes = updateNodes(myNet, tetradGraph, changes, progress);
+
+        progress.startStage(ImportStage.EDGES);
+        updateEdges(myNet, cyNodes, tetradGraph, options, changes, progress);
+        progress.endStage();
+
+        return changes;
+    }
+
+    /**
+     * Adds the graph to the network without touching what is already there.
+     * Nodes are matched by name, the other nodes and every edge of the graph
+     * are added, and only their rows are filled. Nothing is removed or
+     * updated.
+     *
+     * @param myNet the network to add to
+     * @param tetradGraph the nodes and edges to add
+     * @param options import options
+     * @param progress progress and cancellation of the expansion
+     * @return what was added
+     */
+    public NetworkChanges add(CyNetwork myNet, TetradGraphData tetradGraph, ImportOptions options, ImportProgress progress) {
+        NetworkChanges changes = new NetworkChanges();
+
+        tetradNetworkBuilder.createColumns(myNet, options);
+
+        Map<String, CyNode> nodeName2CyNodeMap = new HashMap<>(myNet.getNodeCount() * 2);
+        for (CyNode cyNode : myNet.getNodeList()) {
+            String nodeName = myNet.getRow(cyNode).get(CyNetwork.NAME, String.class);
+            if (nodeName != null) {
+                nodeName2CyNodeMap.putIfAbsent(nodeName, cyNode);
+            }
+        }
+
+        progress.startStage(ImportStage.NODES);
+        CyNode[] cyNodes = new CyNode[tetradGraph.getNodeCount()];
+        for (int i = 0; i < cyNodes.length; i++) {
+            String nodeName = tetradGraph.getNodeName(i);
+            cyNodes[i] = nodeName2CyNodeMap.get(nodeName);
+            if (cyNodes[i] == null) {
+                cyNodes[i] = myNet.addNode();
+                myNet.getRow(cyNodes[i]).set(CyNetwork.NAME, nodeName);
+                changes.addNode(cyNodes[i]);
+            }
+            if (i % ImportProgress.CHECK_INTERVAL == 0) {
+                progress.update(i, cyNodes.length);
+            }
+        }
+
+        progress.startStage(ImportStage.EDGES);
+        EdgeStore edges = tetradGraph.getEdges();
+        CyTable myEdgeTable = myNet.getDefaultEdgeTable();
+        CyRow[] myEdgeRows = new CyRow[edges.size()];
+        for (int i = 0; i < myEdgeRows.length; i++) {
+            CyEdge cyEdge = myNet.addEdge(cyNodes[edges.getSource(i)], cyNodes[edges.getTarget(i)], true);
+            myEdgeRows[i] = myEdgeTable.getRow(cyEdge.getSUID());
+            changes.addEdge();
+            if (i % ImportProgress.CHECK_INTERVAL == 0) {
+                progress.update(i, myEdgeRows.length);
+            }
+        }
+
+        progress.startStage(ImportStage.ANNOTATIONS);
+        tetradNetworkBuilder.fillEdgeRows(myNet, myEdgeRows, tetradGraph, options, progress);
+        progress.endStage();
+
+        return changes;
+    }
+
+    private CyNode[] updateNodes(CyNetwork myNet, TetradGraphData tetradGraph, NetworkChanges changes, ImportProgress progress) {
+        List<CyNode> nodesToRemove = new ArrayList<>();
+
+        // Existing nodes by name, a second node with the same name can't be matched and goes
+        Map<String, CyNode> nodeName2CyNodeMap = new HashMap<>(myNet.getNodeCount() * 2);
+        for (CyNode cyNode : myNet.getNodeList()) {
+            String nodeName = myNet.getRow(cyNode).get(CyNetwork.NAME, String.class);
+            if (nodeName == null || nodeName2CyNodeMap.putIfAbsent(nodeName, cyNode) != null) {
+                nodesToRemove.add(cyNode);
+            }
+        }
+
+        CyNode[] cyNodes = new CyNode[tetradGraph.getNodeCount()];
+        for (int i = 0; i < cyNodes.length; i++) {
+            String nodeName = tetradGraph.getNodeName(i);
+            cyNodes[i] = nodeName2CyNodeMap.remove(nodeName);
+            if (cyNodes[i] == null) {
+                cyNodes[i] = myNet.addNode();
+                myNet.getRow(cyNodes[i]).set(CyNetwork.NAME, nodeName);
+                changes.addNode(cyNodes[i]);
+            }
+            if (i % ImportProgress.CHECK_INTERVAL == 0) {
+                progress.update(i, cyNodes.length);
+            }
+        }
+
+        // Whatever is left is no longer in the Tetrad graph, its edges go with it
+        nodesToRemove.addAll(nodeName2CyNodeMap.values());
+        if (!nodesToRemove.isEmpty()) {
+            myNet.removeNodes(nodesToRemove);
+            changes.removeNodes(nodesToRemove.size());
+        }
+
+        return cyNodes;
+    }
+
+    private void updateEdges(CyNetwork myNet, CyNode[] cyNodes, TetradGraphData tetradGraph, ImportOptions options, NetworkChanges changes, ImportProgress progress) {
+        EdgeStore edges = tetradGraph.getEdges();
+        CyTable myEdgeTable = myNet.getDefaultEdgeTable();
+        List<CyEdge> edgesToRemove = new ArrayList<>();
+
+        // Existing edges by node pair, Tetrad may write an edge the other way around
+        Map<String, CyEdge> edgeKey2CyEdgeMap = new HashMap<>(myNet.getEdgeCount() * 2);
+        for (CyEdge cyEdge : myNet.getEdgeList()) {
+            String edgeKey = getEdgeKey(myNet.getRow(cyEdge.getSource()).get(CyNetwork.NAME, String.class),
+                    myNet.getRow(cyEdge.getTarget()).get(CyNetwork.NAME, String.class));
+            if (edgeKey2CyEdgeMap.putIfAbsent(edgeKey, cyEdge) != null) {
+                edgesToRemove.add(cyEdge);
+            }
+        }
+
+        // Edge type names of the annotation ids already in the network
+        Map<String, String> annotationNames = getAnnotationNames(myNet);
+
+        // Only the rows of new and changed edges are filled, the rest stay null
+        CyRow[] myEdgeRows = new CyRow[edges.size()];
+        for (int i = 0; i < myEdgeRows.length; i++) {
+            String edgeKey = getEdgeKey(tetradGraph.getNodeName(edges.getSource(i)), tetradGraph.getNodeName(edges.getTarget(i)));
+            CyEdge cyEdge = edgeKey2CyEdgeMap.remove(edgeKey);
+            if (cyEdge == null) {
+                cyEdge = myNet.addEdge(cyNodes[edges.getSource(i)], cyNodes[edges.getTarget(i)], true);
+                myEdgeRows[i] = myEdgeTable.getRow(cyEdge.getSUID());
+                changes.addEdge();
+            } else {
+                if (cyEdge.getSource() != cyNodes[edges.getSource(i)]) {
+                    // Keep the edge as it is in the network, "A o-> B" is compared as "B <-o A"
+                    edges.reverse(i);
+                }
+
+                CyRow myRow = myEdgeTable.getRow(cyEdge.getSUID());
+                if (isChanged(myRow, edges, i, options, annotationNames)) {
+                    clearTetradCells(myRow, myEdgeTable);
+                    myEdgeRows[i] = myRow;
+                    changes.updateEdge();
+                }
+            }
+            if (i % ImportProgress.CHECK_INTERVAL == 0) {
+                progress.update(i, myEdgeRows.length);
+            }
+        }
+
+        // Edges that are no longer in the Tetrad graph
+        edgesToRemove.addAll(edgeKey2CyEdgeMap.values());
+        if (!edgesToRemove.isEmpty()) {
+            myNet.removeEdges(edgesToRemove);
+            changes.removeEdges(edgesToRemove.size());
+        }
+
+        progress.startStage(ImportStage.ANNOTATIONS);
+        tetradNetworkBuilder.fillEdgeRows(myNet, myEdgeRows, tetradGraph, options, progress);
+    }
+
+    /**
+     * @return true if the endpoints or the edge type probabilities in the row
+     * differ from the edge
+     */
+    private boolean isChanged(CyRow myRow, EdgeStore edges, int edge, ImportOptions options, Map<String, String> annotationNames) {
+        if (!Objects.equals(myRow.get(CyEdge.INTERACTION, String.class), edges.getEdgeType(edge))) {
+            return true;
+        }
+
+        if (!options.probabilityColumns) {
+            // Without the probability columns only the max edge type annotation tells what changed
+            return options.ccdAnnotations
+                    && !Objects.equals(getAnnotatedMaxEdgeType(myRow, annotationNames), getMaxEdgeType(edges, edge));
+        }
+
+        for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+            Double oldProbability = myRow.get(PROBABILITY_DEPENDENT_COLUMNS[edgeType], Double.class);
+            double probability = edges.getProbability(edge, edgeType);
+            if ((oldProbability == null) != Double.isNaN(probability)
+                    || (oldProbability != null && oldProbability != probability)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Unsets the probability and annotation cells so values the new graph
+     * doesn't have don't linger.
+     */
+    private void clearTetradCells(CyRow myRow, CyTable myEdgeTable) {
+        for (String columnName : PROBABILITY_DEPENDENT_COLUMNS) {
+            if (myEdgeTable.getColumn(columnName) != null) {
+                myRow.set(columnName, null);
+            }
+        }
+    }
+
+    /**
+     * @return the max edge type and its probability as "name=probability",
+     * the way the annotation of the edge has them, or null if there is none
+     */
+    private static String getMaxEdgeType(EdgeStore edges, int edge) {
+        int maxEdgeType = edges.getMaxEdgeType(edge);
+        if (maxEdgeType < 0) {
+            return null;
+        }
+
+        return EdgeStore.EDGE_TYPES[maxEdgeType].name() + '=' + Double.toString(edges.getProbability(edge, maxEdgeType));
+    }
+
+    /**
+     * @return the max edge type and its probability in the
+     * "__CCD_Annotation_Set" cell as "name=probability", or null if there is
+     * none
+     */
+    private static String getAnnotatedMaxEdgeType(CyRow myRow, Map<String, String> annotationNames) {
+        List<String> annotationSet = myRow.getList(TetradNetworkBuilder.CCD_ANNOTATION_SET, String.class);
+        if (annotationSet == null || annotationSet.isEmpty()) {
+            return null;
+        }
+
+        Map<String, String> annoArgs = TetradNetworkBuilder.parseAnnotationArgs(annotationSet.get(0));
+        return annotationNames.get(annoArgs.get("a_id")) + '=' + annoArgs.get("value");
+    }
+
+    /**
+     * @return the edge type name per annotation id in "__CCD_Annotations"
+     */
+    private static Map<String, String> getAnnotationNames(CyNetwork myNet) {
+        Map<String, String> annotationNames = new HashMap<>();
+        if (myNet.getDefaultNetworkTable().getColumn(TetradNetworkBuilder.CCD_ANNOTATIONS) == null) {
+            return annotationNames;
+        }
+
+        List<String> annotations = myNet.getRow(myNet).getList(TetradNetworkBuilder.CCD_ANNOTATIONS, String.class);
+        if (annotations != null) {
+            for (String annotation : annotations) {
+                Map<String, String> annoArgs = TetradNetworkBuilder.parseAnnotationArgs(annotation);
+                annotationNames.put(annoArgs.get("uuid"), annoArgs.get("name"));
+            }
+        }
+
+        return annotationNames;
+    }
+
+    /**
+     * @return the key of the node pair, the same for both directions
+     */
+    private static String getEdgeKey(String sourceName, String targetName) {
+        if (sourceName != null && targetName != null && sourceName.compareTo(targetName) > 0) {
+            return targetName + '\t' + sourceName;
+        }
+
+        return sourceName + '\t' + targetName;
+    }
+
+}
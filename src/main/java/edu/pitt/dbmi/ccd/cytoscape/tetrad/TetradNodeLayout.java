@@ -0,0 +1,132 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+
+/**
+ * Initial node locations for a Tetrad network view.
+ *
+ * Tetrad saves centerX/centerY for every node, those are used as they are.
+ * Nodes without a saved location are put on a square grid below the located
+ * ones, in node order. This is only a placement, no layout algorithm is run.
+ *
+ */
+public class TetradNodeLayout {
+
+    private static final double GRID_SPACING = 80.0;
+
+    private final CyNode[] nodes;
+
+    private final double[] xLocations;
+
+    private final double[] yLocations;
+
+    private TetradNodeLayout(CyNode[] nodes, double[] xLocations, double[] yLocations) {
+        this.nodes = nodes;
+        this.xLocations = xLocations;
+        this.yLocations = yLocations;
+    }
+
+    /**
+     * Works out the node locations for a network built from the given graph.
+     *
+     * @param tetradGraph the parsed Tetrad graph
+     * @param network the network built from it
+     * @param useTetradLocations false to ignore the locations saved by Tetrad
+     * @return the node layout
+     */
+    public static TetradNodeLayout create(TetradGraphData tetradGraph, CyNetwork network, boolean useTetradLocations) {
+        List<String> nodeNames = tetradGraph.getNodeNames();
+        int nodeCount = nodeNames.size();
+
+        // Match the network nodes to the Tetrad nodes by name
+        Map<String, CyNode> nodeName2CyNodeMap = new HashMap<>(nodeCount * 2);
+        for (CyNode cyNode : network.getNodeList()) {
+            nodeName2CyNodeMap.put(network.getRow(cyNode).get(CyNetwork.NAME, String.class), cyNode);
+        }
+
+        CyNode[] nodes = new CyNode[nodeCount];
+        double[] xLocations = new double[nodeCount];
+        double[] yLocations = new double[nodeCount];
+
+        double maxY = 0.0;
+        double minX = Double.MAX_VALUE;
+        int[] unlocated = new int[nodeCount];
+        int unlocatedCount = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = nodeName2CyNodeMap.get(nodeNames.get(i));
+
+            double x = tetradGraph.getCenterX(i);
+            double y = tetradGraph.getCenterY(i);
+            if (useTetradLocations && !Double.isNaN(x)) {
+                xLocations[i] = x;
+                yLocations[i] = y;
+                maxY = Math.max(maxY, y);
+                minX = Math.min(minX, x);
+            } else {
+                unlocated[unlocatedCount++] = i;
+            }
+        }
+
+        if (unlocatedCount > 0) {
+            // Grid below whatever already has a location
+            double originX = (unlocatedCount == nodeCount) ? 0.0 : minX;
+            double originY = (unlocatedCount == nodeCount) ? 0.0 : maxY + GRID_SPACING;
+            int columns = (int) Math.ceil(Math.sqrt(unlocatedCount));
+            for (int k = 0; k < unlocatedCount; k++) {
+                int i = unlocated[k];
+                xLocations[i] = originX + (k % columns) * GRID_SPACING;
+                yLocations[i] = originY + (k / columns) * GRID_SPACING;
+            }
+        }
+
+        return new TetradNodeLayout(nodes, xLocations, yLocations);
+    }
+
+    /**
+     * Writes all node locations into the view in one pass.
+     *
+     * @param view the network view
+     */
+    public void apply(CyNetworkView view) {
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == null) {
+                continue;
+            }
+
+            View<CyNode> nodeView = view.getNodeView(nodes[i]);
+            if (nodeView != null) {
+                nodeView.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, xLocations[i]);
+                nodeView.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, yLocations[i]);
+            }
+        }
+    }
+
+    /**
+     * Places only the given nodes, the others keep wherever they are.
+     *
+     * @param view the network view
+     * @param onlyNodes the nodes to place
+     */
+    public void apply(CyNetworkView view, Set<CyNode> onlyNodes) {
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == null || !onlyNodes.contains(nodes[i])) {
+                continue;
+            }
+
+            View<CyNode> nodeView = view.getNodeView(nodes[i]);
+            if (nodeView != null) {
+                nodeView.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, xLocations[i]);
+                nodeView.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, yLocations[i]);
+            }
+        }
+    }
+
+}
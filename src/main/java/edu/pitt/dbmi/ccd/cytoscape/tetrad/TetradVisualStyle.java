@@ -0,0 +1,112 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import org.cytoscape.task.read.LoadVizmapFileTaskFactory;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.vizmap.VisualMappingManager;
+import org.cytoscape.view.vizmap.VisualStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the "Tetrad" visual style defined in tetrad.xml.
+ *
+ * The style is looked up by title or loaded from tetrad.xml the first time
+ * it is needed and then reused by every import, so it is only parsed and
+ * registered once per session.
+ *
+ */
+public class TetradVisualStyle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TetradVisualStyle.class);
+
+    public static final String STYLE_TITLE = "Tetrad";
+
+    private static final String STYLE_RESOURCE = "/tetrad.xml";
+
+    private final LoadVizmapFileTaskFactory loadVizmapFileTaskFactory;
+    private final VisualMappingManager visualMappingManager;
+
+    private VisualStyle visualStyle;
+
+    public TetradVisualStyle(final LoadVizmapFileTaskFactory loadVizmapFileTaskFactory,
+            final VisualMappingManager visualMappingManager) {
+
+        this.loadVizmapFileTaskFactory = loadVizmapFileTaskFactory;
+        this.visualMappingManager = visualMappingManager;
+    }
+
+    /**
+     * @return the Tetrad style, registered with the VisualMappingManager, or
+     * null if it could not be loaded
+     */
+    public synchronized VisualStyle getVisualStyle() {
+        Set<VisualStyle> registeredStyles = visualMappingManager.getAllVisualStyles();
+
+        // The cached one may have been deleted by the user
+        if (visualStyle != null && registeredStyles.contains(visualStyle)) {
+            return visualStyle;
+        }
+        visualStyle = null;
+
+        // Reuse a style already registered under our title, e.g. restored from a session
+        for (VisualStyle registeredStyle : registeredStyles) {
+            if (STYLE_TITLE.equals(registeredStyle.getTitle())) {
+                visualStyle = registeredStyle;
+                return visualStyle;
+            }
+        }
+
+        try (InputStream stream = getClass().getResourceAsStream(STYLE_RESOURCE)) {
+            if (stream == null) {
+                LOGGER.warn("Could not load style - {} not found", STYLE_RESOURCE);
+                return null;
+            }
+
+            Set<VisualStyle> visualStyles = loadVizmapFileTaskFactory.loadStyles(stream);
+            if (visualStyles.isEmpty()) {
+                LOGGER.warn("Could not load style - no style in {}", STYLE_RESOURCE);
+                return null;
+            }
+            visualStyle = visualStyles.iterator().next();
+        } catch (IOException e) {
+            LOGGER.error("Could not load style from " + STYLE_RESOURCE, e);
+            return null;
+        }
+
+        if (!visualMappingManager.getAllVisualStyles().contains(visualStyle)) {
+            visualMappingManager.addVisualStyle(visualStyle);
+        }
+
+        return visualStyle;
+    }
+
+    /**
+     * Sets the Tetrad style as the style of the view and applies it.
+     *
+     * @param networkView the view to style
+     * @return false if the style could not be loaded
+     */
+    public boolean apply(CyNetworkView networkView) {
+        VisualStyle vs = getVisualStyle();
+        if (vs == null) {
+            return false;
+        }
+
+        visualMappingManager.setVisualStyle(vs, networkView);
+        vs.apply(networkView);
+
+        return true;
+    }
+
+    /**
+     * Drops the cached style, the registered style itself stays with the
+     * session.
+     */
+    public synchronized void dispose() {
+        visualStyle = null;
+    }
+
+}
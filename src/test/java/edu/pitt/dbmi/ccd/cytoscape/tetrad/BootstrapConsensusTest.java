@@ -0,0 +1,113 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import edu.cmu.tetrad.graph.EdgeTypeProbability.EdgeType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BootstrapConsensusTest {
+
+    private BootstrapConsensus consensus;
+
+    /**
+     * Three graphs of A, B and C: A --> B twice and once written as B --> A,
+     * B --> C twice (once as C <-- B) and A o-> C once.
+     */
+    @Before
+    public void setUp() {
+        consensus = new BootstrapConsensus();
+        consensus.add(graph(new String[]{"A", "B", "C"},
+                new int[][]{{0, 1, EdgeStore.TAIL, EdgeStore.ARROW}, {1, 2, EdgeStore.TAIL, EdgeStore.ARROW}}));
+        consensus.add(graph(new String[]{"A", "B", "C"},
+                new int[][]{{0, 1, EdgeStore.TAIL, EdgeStore.ARROW}, {2, 1, EdgeStore.ARROW, EdgeStore.TAIL}}));
+        consensus.add(graph(new String[]{"B", "A", "C"},
+                new int[][]{{0, 1, EdgeStore.TAIL, EdgeStore.ARROW}, {1, 2, EdgeStore.CIRCLE, EdgeStore.ARROW}}));
+    }
+
+    @Test
+    public void testCounts() {
+        TetradGraphData tetradGraph = consensus.finish(EdgeProbabilityFilter.ACCEPT_ALL);
+
+        assertEquals(3, consensus.getGraphCount());
+        assertEquals(0, consensus.getUnknownEdgeCount());
+        assertEquals(3, tetradGraph.getNodeCount());
+        assertEquals(3, tetradGraph.getEdges().size());
+
+        // A --> B in two graphs, A <-- B in one, always an edge
+        assertEdge(tetradGraph, "A", "B", "-->", EdgeType.ta, 2.0 / 3, EdgeType.at, 1.0 / 3, 0.0);
+
+        // B --> C in two graphs, no edge in one
+        assertEdge(tetradGraph, "B", "C", "-->", EdgeType.ta, 2.0 / 3, EdgeType.ta, 2.0 / 3, 1.0 / 3);
+
+        // A o-> C in one graph
+        assertEdge(tetradGraph, "A", "C", "o->", EdgeType.ca, 1.0 / 3, EdgeType.ca, 1.0 / 3, 2.0 / 3);
+    }
+
+    @Test
+    public void testEdgeFilter() {
+        TetradGraphData tetradGraph = consensus.finish(new EdgeProbabilityFilter(0.5, 1.0));
+
+        // A o-> C is only in a third of the graphs
+        assertEquals(2, tetradGraph.getEdges().size());
+        assertEquals(1, tetradGraph.getDroppedEdgeCount());
+        assertEquals(-1, TetradGraphAssert.findEdge(tetradGraph, "A", "C"));
+    }
+
+    @Test
+    public void testUnknownEdge() {
+        BootstrapConsensus unknownConsensus = new BootstrapConsensus();
+        unknownConsensus.add(graph(new String[]{"A", "B"}, new int[][]{{0, 1, EdgeStore.ARROW, EdgeStore.CIRCLE}}));
+
+        // "<-o" is the edge type ac
+        assertEquals(0, unknownConsensus.getUnknownEdgeCount());
+
+        unknownConsensus.add(graph(new String[]{"A", "B"}, new int[][]{{0, 1, EdgeStore.UNKNOWN_ENDPOINT, EdgeStore.ARROW}}));
+        assertEquals(1, unknownConsensus.getUnknownEdgeCount());
+        assertEquals(2, unknownConsensus.getGraphCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddAfterFinish() {
+        consensus.finish(EdgeProbabilityFilter.ACCEPT_ALL);
+        consensus.add(new TetradGraphData());
+    }
+
+    private static void assertEdge(TetradGraphData tetradGraph, String nodeName1, String nodeName2, String interaction,
+            EdgeType edgeType1, double probability1, EdgeType edgeType2, double probability2, double nilProbability) {
+        int edge = TetradGraphAssert.findEdge(tetradGraph, nodeName1, nodeName2);
+        assertTrue(nodeName1 + " - " + nodeName2 + " is missing", edge >= 0);
+
+        EdgeStore edges = tetradGraph.getEdges();
+        assertEquals(nodeName1, tetradGraph.getNodeName(edges.getSource(edge)));
+        assertEquals(nodeName2, tetradGraph.getNodeName(edges.getTarget(edge)));
+        assertEquals(interaction, edges.getEdgeType(edge));
+        assertEquals(probability1, edges.getProbability(edge, edgeType1.ordinal()), 1e-12);
+        assertEquals(probability2, edges.getProbability(edge, edgeType2.ordinal()), 1e-12);
+        assertEquals(nilProbability, edges.getProbability(edge, EdgeType.nil.ordinal()), 1e-12);
+
+        // Every edge type has a probability and they add up to one
+        double sum = 0.0;
+        for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+            sum += edges.getProbability(edge, edgeType);
+        }
+        assertEquals(1.0, sum, 1e-12);
+    }
+
+    /**
+     * @param nodeNames the nodes
+     * @param edges source, target, endpoint1 and endpoint2 per edge
+     */
+    private static TetradGraphData graph(String[] nodeNames, int[][] edges) {
+        TetradGraphData tetradGraph = new TetradGraphData();
+        for (String nodeName : nodeNames) {
+            tetradGraph.addNode(nodeName);
+        }
+        for (int[] edge : edges) {
+            tetradGraph.getEdges().addEdge(edge[0], edge[1], edge[2], edge[3]);
+        }
+
+        return tetradGraph;
+    }
+
+}
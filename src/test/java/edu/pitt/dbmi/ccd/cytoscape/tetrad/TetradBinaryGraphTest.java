@@ -0,0 +1,38 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TetradBinaryGraphTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        for (Path sample : new Path[]{TetradGraphAssert.BOOTSTRAP_SAMPLE, TetradGraphAssert.NO_BOOTSTRAP_SAMPLE}) {
+            TetradGraphData tetradGraph = new TetradJsonReader().read(sample);
+
+            Path file = folder.getRoot().toPath().resolve(sample.getFileName() + TetradGraphFiles.BINARY_EXTENSION);
+            TetradBinaryGraph.write(tetradGraph, file);
+
+            TetradGraphAssert.assertSameGraph(tetradGraph, TetradGraphFiles.read(file, EdgeProbabilityFilter.ACCEPT_ALL, ImportProgress.none()));
+        }
+    }
+
+    @Test
+    public void testEdgeFilter() throws IOException {
+        EdgeProbabilityFilter edgeFilter = new EdgeProbabilityFilter(0.5, 1.0);
+
+        Path file = folder.getRoot().toPath().resolve("graph" + TetradGraphFiles.BINARY_EXTENSION);
+        TetradBinaryGraph.write(new TetradJsonReader().read(TetradGraphAssert.BOOTSTRAP_SAMPLE), file);
+
+        // The same edges are dropped as when the json is read with the filter
+        TetradGraphAssert.assertSameGraph(new TetradJsonReader(edgeFilter).read(TetradGraphAssert.BOOTSTRAP_SAMPLE),
+                TetradGraphFiles.read(file, edgeFilter, ImportProgress.none()));
+    }
+
+}
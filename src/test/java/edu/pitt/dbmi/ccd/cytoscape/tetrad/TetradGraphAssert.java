@@ -0,0 +1,65 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Shared fixtures and checks of the Tetrad graph tests.
+ *
+ */
+final class TetradGraphAssert {
+
+    // The sample files at the root of the project, where Maven runs the tests
+    static final Path BOOTSTRAP_SAMPLE = Paths.get("SampleTetradGraphOutput.json");
+    static final Path NO_BOOTSTRAP_SAMPLE = Paths.get("SampleTetradGraphOutput-No-Bootstraping.json");
+
+    private TetradGraphAssert() {
+    }
+
+    /**
+     * Asserts that both graphs have the same nodes, locations, edges and
+     * edge type probabilities, in the same order.
+     */
+    static void assertSameGraph(TetradGraphData expected, TetradGraphData actual) {
+        assertEquals("node count", expected.getNodeCount(), actual.getNodeCount());
+        for (int i = 0; i < expected.getNodeCount(); i++) {
+            assertEquals("node " + i, expected.getNodeName(i), actual.getNodeName(i));
+            assertEquals("centerX of " + expected.getNodeName(i), expected.getCenterX(i), actual.getCenterX(i), 0.0);
+            assertEquals("centerY of " + expected.getNodeName(i), expected.getCenterY(i), actual.getCenterY(i), 0.0);
+        }
+
+        EdgeStore expectedEdges = expected.getEdges();
+        EdgeStore actualEdges = actual.getEdges();
+        assertEquals("edge count", expectedEdges.size(), actualEdges.size());
+        assertEquals("dropped edge count", expected.getDroppedEdgeCount(), actual.getDroppedEdgeCount());
+        for (int i = 0; i < expectedEdges.size(); i++) {
+            assertEquals("source of edge " + i, expectedEdges.getSource(i), actualEdges.getSource(i));
+            assertEquals("target of edge " + i, expectedEdges.getTarget(i), actualEdges.getTarget(i));
+            assertEquals("edge type of edge " + i, expectedEdges.getEdgeType(i), actualEdges.getEdgeType(i));
+            for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+                assertEquals("probability " + EdgeStore.EDGE_TYPES[edgeType] + " of edge " + i,
+                        expectedEdges.getProbability(i, edgeType), actualEdges.getProbability(i, edgeType), 0.0);
+            }
+        }
+    }
+
+    /**
+     * @return the index of the edge between the two nodes, in either
+     * direction, or -1
+     */
+    static int findEdge(TetradGraphData tetradGraph, String nodeName1, String nodeName2) {
+        int node1 = tetradGraph.getNodeIndex(nodeName1);
+        int node2 = tetradGraph.getNodeIndex(nodeName2);
+        EdgeStore edges = tetradGraph.getEdges();
+        for (int i = 0; i < edges.size(); i++) {
+            if ((edges.getSource(i) == node1 && edges.getTarget(i) == node2)
+                    || (edges.getSource(i) == node2 && edges.getTarget(i) == node1)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+}
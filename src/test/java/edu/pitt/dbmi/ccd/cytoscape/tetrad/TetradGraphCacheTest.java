@@ -0,0 +1,104 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TetradGraphCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path cacheDirectory;
+    private Path file;
+    private TetradGraphCache graphCache;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDirectory = folder.newFolder("cache").toPath();
+        file = folder.getRoot().toPath().resolve(TetradGraphAssert.BOOTSTRAP_SAMPLE.getFileName());
+        Files.copy(TetradGraphAssert.BOOTSTRAP_SAMPLE, file, StandardCopyOption.COPY_ATTRIBUTES);
+        graphCache = new TetradGraphCache(cacheDirectory, 64L * 1024 * 1024);
+    }
+
+    @Test
+    public void testCacheHit() throws IOException {
+        TetradGraphData parsed = new TetradJsonReader().read(file);
+
+        // The first read parses the file and adds the entry
+        TetradGraphAssert.assertSameGraph(parsed, graphCache.read(file, EdgeProbabilityFilter.ACCEPT_ALL, ImportProgress.none()));
+        assertEquals(1, getEntries().size());
+
+        // The second one is served from the entry
+        TetradGraphAssert.assertSameGraph(parsed, graphCache.read(file, EdgeProbabilityFilter.ACCEPT_ALL, ImportProgress.none()));
+        assertEquals(1, getEntries().size());
+    }
+
+    @Test
+    public void testCacheHitWithEdgeFilter() throws IOException {
+        EdgeProbabilityFilter edgeFilter = new EdgeProbabilityFilter(0.5, 1.0);
+        graphCache.read(file, EdgeProbabilityFilter.ACCEPT_ALL, ImportProgress.none());
+
+        // One entry serves any thresholds
+        TetradGraphAssert.assertSameGraph(new TetradJsonReader(edgeFilter).read(file), graphCache.read(file, edgeFilter, ImportProgress.none()));
+        assertEquals(1, getEntries().size());
+    }
+
+    @Test
+    public void testBrokenEntry() throws IOException {
+        TetradGraphData parsed = new TetradJsonReader().read(file);
+        graphCache.read(file, EdgeProbabilityFilter.ACCEPT_ALL, ImportProgress.none());
+
+        // Negative, huge and too small node counts in the header
+        Path entry = getEntries().get(0);
+        byte[] bytes = Files.readAllBytes(entry);
+        for (int nodeCount : new int[]{-1, Integer.MAX_VALUE, 3}) {
+            byte[] broken = bytes.clone();
+            ByteBuffer.wrap(broken).putInt(4, nodeCount);
+            Files.write(entry, broken);
+
+            // The entry is dropped, the file parsed again and the entry rewritten
+            TetradGraphAssert.assertSameGraph(parsed, graphCache.read(file, EdgeProbabilityFilter.ACCEPT_ALL, ImportProgress.none()));
+            assertEquals(1, getEntries().size());
+        }
+    }
+
+    @Test
+    public void testChangedContentSameSizeAndTime() throws IOException {
+        graphCache.read(file, EdgeProbabilityFilter.ACCEPT_ALL, ImportProgress.none());
+
+        // Another location of the same length, written back with the old modification time
+        FileTime lastModified = Files.getLastModifiedTime(file);
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        Files.write(file, json.replaceFirst("\"centerX\": *225", "\"centerX\": 226").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, lastModified);
+
+        // The content hash tells the files apart, the file is parsed again
+        TetradGraphData tetradGraph = graphCache.read(file, EdgeProbabilityFilter.ACCEPT_ALL, ImportProgress.none());
+        assertEquals(226.0, tetradGraph.getCenterX(0), 0.0);
+        TetradGraphAssert.assertSameGraph(new TetradJsonReader().read(file), tetradGraph);
+        assertEquals(2, getEntries().size());
+    }
+
+    private List<Path> getEntries() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDirectory, "*" + TetradGraphCache.CACHE_FILE_EXTENSION)) {
+            stream.forEach(entries::add);
+        }
+
+        return entries;
+    }
+
+}
@@ -0,0 +1,82 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import edu.cmu.tetrad.graph.EdgeTypeProbability.EdgeType;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TetradJsonReaderTest {
+
+    @Test
+    public void testReadBootstrapSample() throws IOException {
+        TetradGraphData tetradGraph = new TetradJsonReader().read(TetradGraphAssert.BOOTSTRAP_SAMPLE);
+
+        assertEquals(20, tetradGraph.getNodeCount());
+        assertEquals("X1", tetradGraph.getNodeName(0));
+        assertEquals(225.0, tetradGraph.getCenterX(0), 0.0);
+        assertEquals(45.0, tetradGraph.getCenterY(0), 0.0);
+
+        EdgeStore edges = tetradGraph.getEdges();
+        assertEquals(27, edges.size());
+        assertEquals(0, tetradGraph.getDroppedEdgeCount());
+        for (int i = 0; i < edges.size(); i++) {
+            assertTrue("edge " + i + " has probabilities", edges.hasProbabilities(i));
+        }
+
+        // The first edge is X10 --> X17 with nil 0.2 and ta 0.8
+        assertEquals("X10", tetradGraph.getNodeName(edges.getSource(0)));
+        assertEquals("X17", tetradGraph.getNodeName(edges.getTarget(0)));
+        assertEquals("-->", edges.getEdgeType(0));
+        assertEquals(0.2, edges.getProbability(0, EdgeType.nil.ordinal()), 0.0);
+        assertEquals(0.8, edges.getProbability(0, EdgeType.ta.ordinal()), 0.0);
+        assertEquals(0.0, edges.getProbability(0, EdgeType.at.ordinal()), 0.0);
+        assertEquals(EdgeType.ta.ordinal(), edges.getMaxEdgeType(0));
+    }
+
+    @Test
+    public void testReadNoBootstrapSample() throws IOException {
+        TetradGraphData tetradGraph = new TetradJsonReader().read(TetradGraphAssert.NO_BOOTSTRAP_SAMPLE);
+
+        assertEquals(20, tetradGraph.getNodeCount());
+
+        EdgeStore edges = tetradGraph.getEdges();
+        assertEquals(15, edges.size());
+        for (int i = 0; i < edges.size(); i++) {
+            assertFalse("edge " + i + " has probabilities", edges.hasProbabilities(i));
+            assertEquals(-1, edges.getMaxEdgeType(i));
+        }
+
+        assertEquals("X6", tetradGraph.getNodeName(edges.getSource(0)));
+        assertEquals("X18", tetradGraph.getNodeName(edges.getTarget(0)));
+        assertEquals("-->", edges.getEdgeType(0));
+    }
+
+    @Test
+    public void testEdgeFilter() throws IOException {
+        EdgeProbabilityFilter edgeFilter = new EdgeProbabilityFilter(0.5, 1.0);
+
+        TetradGraphData tetradGraph = new TetradJsonReader(edgeFilter).read(TetradGraphAssert.BOOTSTRAP_SAMPLE);
+        assertEquals(20, tetradGraph.getNodeCount());
+        assertEquals(15, tetradGraph.getEdges().size());
+        assertEquals(12, tetradGraph.getDroppedEdgeCount());
+
+        // Edges without probabilities are never dropped
+        tetradGraph = new TetradJsonReader(edgeFilter).read(TetradGraphAssert.NO_BOOTSTRAP_SAMPLE);
+        assertEquals(15, tetradGraph.getEdges().size());
+        assertEquals(0, tetradGraph.getDroppedEdgeCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownEdgeType() throws IOException {
+        String json = "{\"nodes\":[{\"name\":\"A\"},{\"name\":\"B\"}],\"edgesSet\":[{\"node1\":{\"name\":\"A\"},\"node2\":{\"name\":\"B\"},"
+                + "\"endpoint1\":{\"ordinal\":0},\"endpoint2\":{\"ordinal\":1},"
+                + "\"edgeTypeProbabilities\":[{\"edgeType\":\"xx\",\"probability\":0.5}]}]}";
+
+        new TetradJsonReader().read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
@@ -0,0 +1,52 @@
+package edu.pitt.dbmi.ccd.cytoscape.tetrad;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TetradJsonWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        for (Path sample : new Path[]{TetradGraphAssert.BOOTSTRAP_SAMPLE, TetradGraphAssert.NO_BOOTSTRAP_SAMPLE}) {
+            TetradGraphData tetradGraph = new TetradJsonReader().read(sample);
+
+            Path file = folder.getRoot().toPath().resolve(sample.getFileName());
+            TetradJsonWriter.write(tetradGraph, file, ImportProgress.none());
+
+            TetradGraphAssert.assertSameGraph(tetradGraph, new TetradJsonReader().read(file));
+        }
+    }
+
+    @Test
+    public void testWriteAndReadGzip() throws IOException {
+        TetradGraphData tetradGraph = new TetradJsonReader().read(TetradGraphAssert.BOOTSTRAP_SAMPLE);
+
+        Path file = folder.getRoot().toPath().resolve("graph" + TetradGraphFiles.GZIP_JSON_EXTENSION);
+        TetradJsonWriter.write(tetradGraph, file, ImportProgress.none());
+
+        TetradGraphAssert.assertSameGraph(tetradGraph, TetradGraphFiles.read(file, EdgeProbabilityFilter.ACCEPT_ALL, ImportProgress.none()));
+    }
+
+    @Test
+    public void testWriteAndReadNamesToEscape() throws IOException {
+        TetradGraphData tetradGraph = new TetradGraphData();
+        int node1 = tetradGraph.addNode("a \"quoted\" name", 10.0, 20.0);
+        int node2 = tetradGraph.addNode("back\\slash\tand tab");
+        int edge = tetradGraph.getEdges().addEdge(node1, node2, EdgeStore.CIRCLE, EdgeStore.ARROW);
+        for (int edgeType = 0; edgeType < EdgeStore.EDGE_TYPE_COUNT; edgeType++) {
+            tetradGraph.getEdges().setProbability(edge, edgeType, edgeType / 10.0);
+        }
+
+        Path file = folder.getRoot().toPath().resolve("escaped.json");
+        TetradJsonWriter.write(tetradGraph, file, ImportProgress.none());
+
+        TetradGraphAssert.assertSameGraph(tetradGraph, new TetradJsonReader().read(file));
+    }
+
+}